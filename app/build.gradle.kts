@@ -25,6 +25,10 @@ android {
             )
         }
     }
+    testOptions {
+        // JVM unit tests run against the SDK stubs; let Log and friends return defaults
+        unitTests.isReturnDefaultValues = true
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_1_8
         targetCompatibility = JavaVersion.VERSION_1_8
@@ -43,4 +47,5 @@ dependencies {
     implementation("androidx.cardview:cardview:1.0.0")
     implementation("androidx.recyclerview:recyclerview:1.3.1")
     implementation("com.google.code.gson:gson:2.10.1")
+    implementation(project(":core"))
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.example.expensemanager.utils;
+
+import android.util.Log;
+
+// Debug builds log timing spans to Logcat; the other build type has its own copy of this class
+public final class TraceConfig {
+    private static final String TAG = "Tracer";
+
+    private TraceConfig() {
+    }
+
+    public static void install() {
+        Tracer.setSink((name, durationNanos, items) ->
+                Log.d(TAG, name + " " + durationNanos / 1000 + "us" + (items >= 0 ? " items=" + items : "")));
+    }
+}
@@ -2,12 +2,14 @@ package com.example.expensemanager;
 
 import android.app.Application;
 import com.example.expensemanager.utils.DataStore;
+import com.example.expensemanager.utils.TraceConfig;
 
 public class MyApplication extends Application {
     @Override
     public void onCreate() {
         super.onCreate();
-        // Initialize DataStore with application context
+        TraceConfig.install();
+        // Initialize DataStore with application context; data loads in the background
         DataStore.initialize(this);
     }
 }
\ No newline at end of file
@@ -18,19 +18,21 @@ import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.expensemanager.R;
 import com.example.expensemanager.model.Expense;
+import com.example.expensemanager.model.Money;
 import com.example.expensemanager.model.Person;
 import com.example.expensemanager.utils.DataStore;
+import com.example.expensemanager.utils.Formatters;
 import com.google.android.material.textfield.TextInputLayout;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 
 public class AddExpenseActivity extends AppCompatActivity {
 
+    private static final long MAX_AMOUNT_CENTS = 100_000_000L;
+
     private Spinner spinnerPerson, spinnerCategory;
     private EditText etAmount, etDescription;
     private TextView tvDate;
@@ -38,7 +40,6 @@ public class AddExpenseActivity extends AppCompatActivity {
     private TextInputLayout tilAmount, tilDescription;
 
     private Calendar selectedDate;
-    private SimpleDateFormat dateFormat;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -72,8 +73,7 @@ public class AddExpenseActivity extends AppCompatActivity {
         tilDescription = findViewById(R.id.tilDescription);
 
         selectedDate = Calendar.getInstance();
-        dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-        tvDate.setText(dateFormat.format(selectedDate.getTime()));
+        tvDate.setText(Formatters.formatDate(selectedDate.getTime()));
     }
 
     private void setupDatePicker() {
@@ -85,7 +85,7 @@ public class AddExpenseActivity extends AppCompatActivity {
                 this,
                 (view, year, month, dayOfMonth) -> {
                     selectedDate.set(year, month, dayOfMonth);
-                    tvDate.setText(dateFormat.format(selectedDate.getTime()));
+                    tvDate.setText(Formatters.formatDate(selectedDate.getTime()));
                 },
                 selectedDate.get(Calendar.YEAR),
                 selectedDate.get(Calendar.MONTH),
@@ -148,15 +148,15 @@ public class AddExpenseActivity extends AppCompatActivity {
             hasError = true;
         } else {
             try {
-                double amount = Double.parseDouble(amountStr);
-                if (amount <= 0) {
+                long amountCents = Money.parse(amountStr);
+                if (amountCents <= 0) {
                     tilAmount.setError("Amount must be greater than 0");
                     hasError = true;
-                } else if (amount > 1000000) {
+                } else if (amountCents > MAX_AMOUNT_CENTS) {
                     tilAmount.setError("Amount is too large");
                     hasError = true;
                 }
-            } catch (NumberFormatException e) {
+            } catch (NumberFormatException | ArithmeticException e) {
                 tilAmount.setError("Invalid amount");
                 hasError = true;
             }
@@ -184,15 +184,16 @@ public class AddExpenseActivity extends AppCompatActivity {
         }
 
         // Create expense
-        double amount = Double.parseDouble(amountStr);
+        long amountCents = Money.parse(amountStr);
         Date date = selectedDate.getTime();
-        Expense expense = new Expense(selectedPerson, amount, description, date, category);
+        Expense expense = new Expense(selectedPerson, amountCents, description, date, category);
 
         dataStore.addExpense(expense);
 
         // Show success
         Toast.makeText(this,
-                String.format("Added $%.2f expense for %s", amount, selectedPerson.getName()),
+                Formatters.appendMoney(new StringBuilder("Added "), amountCents, Money.DEFAULT_CURRENCY)
+                        .append(" expense for ").append(selectedPerson.getName()),
                 Toast.LENGTH_SHORT).show();
 
         // Clear fields
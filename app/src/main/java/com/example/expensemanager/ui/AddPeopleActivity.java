@@ -2,6 +2,8 @@ package com.example.expensemanager.ui;
 
 import android.app.AlertDialog;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.view.LayoutInflater;
@@ -15,20 +17,25 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.expensemanager.R;
-import com.example.expensemanager.model.Expense;
+import com.example.expensemanager.model.Money;
 import com.example.expensemanager.model.Person;
 import com.example.expensemanager.utils.DataStore;
+import com.example.expensemanager.utils.Formatters;
+import com.example.expensemanager.utils.NameIndex;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
-import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class AddPeopleActivity extends AppCompatActivity {
 
@@ -40,6 +47,12 @@ public class AddPeopleActivity extends AppCompatActivity {
     private EditText etSearch;
     private FloatingActionButton fabAddPerson;
 
+    private static final long SEARCH_DELAY_MS = 250;
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private final Runnable runSearch = () -> adapter.filter(etSearch.getText().toString());
+    // Builds the name index and runs searches, in the order they were asked for
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor();
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -68,6 +81,13 @@ public class AddPeopleActivity extends AppCompatActivity {
         refreshData();
     }
 
+    @Override
+    protected void onDestroy() {
+        searchHandler.removeCallbacksAndMessages(null);
+        searchExecutor.shutdownNow();
+        super.onDestroy();
+    }
+
     private void initViews() {
         recyclerView = findViewById(R.id.recyclerViewPeople);
         tvEmptyState = findViewById(R.id.tvEmptyState);
@@ -92,7 +112,9 @@ public class AddPeopleActivity extends AppCompatActivity {
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                adapter.filter(s.toString());
+                // Only search once typing pauses
+                searchHandler.removeCallbacks(runSearch);
+                searchHandler.postDelayed(runSearch, SEARCH_DELAY_MS);
             }
 
             @Override
@@ -113,13 +135,12 @@ public class AddPeopleActivity extends AppCompatActivity {
         // Update stats
         tvTotalPeople.setText(String.valueOf(people.size()));
 
-        double totalPaid = 0;
+        long totalPaidCents = 0;
         for (Person person : people) {
-            totalPaid += person.getTotalPaid();
+            totalPaidCents = Money.add(totalPaidCents, person.getTotalPaidCents());
         }
 
-        NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
-        tvTotalPaidAll.setText(currencyFormat.format(totalPaid));
+        tvTotalPaidAll.setText(Formatters.formatMoney(totalPaidCents, Money.DEFAULT_CURRENCY));
 
         // Show/hide empty state
         if (people.isEmpty()) {
@@ -203,7 +224,8 @@ public class AddPeopleActivity extends AppCompatActivity {
                 etName.requestFocus();
             } else {
                 person.setName(newName);
-                adapter.notifyDataSetChanged();
+                DataStore.getInstance().updatePerson(person);
+                refreshData();
                 Toast.makeText(this, "Name updated", Toast.LENGTH_SHORT).show();
                 dialog.dismiss();
             }
@@ -211,7 +233,7 @@ public class AddPeopleActivity extends AppCompatActivity {
     }
 
     private void showDeleteConfirmation(Person person) {
-        int expenseCount = DataStore.getInstance().getExpensesByPerson(person.getId()).size();
+        int expenseCount = DataStore.getInstance().getExpenseCountByPerson(person.getId());
 
         String message;
         if (expenseCount > 0) {
@@ -235,40 +257,96 @@ public class AddPeopleActivity extends AppCompatActivity {
                 .show();
     }
 
-    // People Adapter
-    private class PeopleAdapter extends RecyclerView.Adapter<PeopleAdapter.PersonViewHolder> {
+    // What one row shows, copied out of the Person. People are renamed in place, so
+    // DiffUtil needs its own copy to tell whether a row really changed.
+    static final class PersonRow {
+        static final DiffUtil.ItemCallback<PersonRow> DIFF = new DiffUtil.ItemCallback<PersonRow>() {
+            @Override
+            public boolean areItemsTheSame(@NonNull PersonRow oldRow, @NonNull PersonRow newRow) {
+                return oldRow.id.equals(newRow.id);
+            }
+
+            @Override
+            public boolean areContentsTheSame(@NonNull PersonRow oldRow, @NonNull PersonRow newRow) {
+                return oldRow.sameContents(newRow);
+            }
+        };
+
+        final Person person;
+        final String id;
+        final String name;
+        final String colorHex;
+        final long totalPaidCents;
+        final int expenseCount;
+
+        PersonRow(Person person, int expenseCount) {
+            this.person = person;
+            this.id = person.getId();
+            this.name = person.getName();
+            this.colorHex = person.getColorHex();
+            this.totalPaidCents = person.getTotalPaidCents();
+            this.expenseCount = expenseCount;
+        }
+
+        boolean sameContents(PersonRow other) {
+            return totalPaidCents == other.totalPaidCents
+                    && expenseCount == other.expenseCount
+                    && Objects.equals(name, other.name)
+                    && Objects.equals(colorHex, other.colorHex);
+        }
+    }
+
+    // People Adapter; rows are diffed off the main thread so only changed rows rebind
+    private class PeopleAdapter extends ListAdapter<PersonRow, PeopleAdapter.PersonViewHolder> {
 
-        private List<Person> originalList;
-        private List<Person> filteredList;
-        private NumberFormat currencyFormat;
+        // Rebuilt on the search executor on every refresh and only read there afterwards
+        private volatile NameIndex<PersonRow> nameIndex;
+        // Written on the main thread; searches check it to drop queries that were replaced
+        private volatile String query;
+        private final StableIds stableIds = new StableIds();
 
         public PeopleAdapter() {
-            this.originalList = DataStore.getInstance().getPeople();
-            this.filteredList = new ArrayList<>(originalList);
-            this.currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
+            super(PersonRow.DIFF);
+            setHasStableIds(true);
         }
 
+        // Searches queued after this run against the new index
         public void refreshData() {
-            this.originalList = DataStore.getInstance().getPeople();
-            this.filteredList = new ArrayList<>(originalList);
-            notifyDataSetChanged();
+            searchExecutor.execute(() -> nameIndex = new NameIndex<>(buildRows(), row -> row.name));
+            filter(query);
         }
 
-        public void filter(String query) {
-            filteredList.clear();
+        private List<PersonRow> buildRows() {
+            DataStore store = DataStore.getInstance();
+            List<Person> people = store.getPeople();
+            List<PersonRow> rows = new ArrayList<>(people.size());
+            for (Person person : people) {
+                rows.add(new PersonRow(person, store.getExpenseCountByPerson(person.getId())));
+            }
+            return rows;
+        }
 
-            if (query == null || query.isEmpty()) {
-                filteredList.addAll(originalList);
-            } else {
-                String lowerCaseQuery = query.toLowerCase();
-                for (Person person : originalList) {
-                    if (person.getName().toLowerCase().contains(lowerCaseQuery)) {
-                        filteredList.add(person);
-                    }
+        public void filter(String query) {
+            this.query = query;
+            searchExecutor.execute(() -> {
+                if (!Objects.equals(query, this.query)) {
+                    return;
                 }
-            }
+                List<PersonRow> matches = query == null || query.trim().isEmpty()
+                        ? nameIndex.getItems()
+                        : nameIndex.search(query);
+                searchHandler.post(() -> {
+                    // A query that finished after the text changed again is stale
+                    if (Objects.equals(query, this.query)) {
+                        submitList(matches);
+                    }
+                });
+            });
+        }
 
-            notifyDataSetChanged();
+        @Override
+        public long getItemId(int position) {
+            return stableIds.of(getItem(position).id);
         }
 
         @NonNull
@@ -281,8 +359,9 @@ public class AddPeopleActivity extends AppCompatActivity {
 
         @Override
         public void onBindViewHolder(@NonNull PersonViewHolder holder, int position) {
-            Person person = filteredList.get(position);
-            holder.bind(person);
+            PersonRow row = getItem(position);
+            Person person = row.person;
+            holder.bind(row);
 
             holder.btnEdit.setOnClickListener(v -> showEditPersonDialog(person));
             holder.btnDelete.setOnClickListener(v -> showDeleteConfirmation(person));
@@ -293,11 +372,6 @@ public class AddPeopleActivity extends AppCompatActivity {
             });
         }
 
-        @Override
-        public int getItemCount() {
-            return filteredList.size();
-        }
-
         class PersonViewHolder extends RecyclerView.ViewHolder {
             TextView tvName, tvTotalPaid, tvInitial, tvExpenseCount;
             View colorIndicator;
@@ -314,26 +388,25 @@ public class AddPeopleActivity extends AppCompatActivity {
                 btnDelete = itemView.findViewById(R.id.btnDelete);
             }
 
-            public void bind(Person person) {
-                tvName.setText(person.getName());
-                tvTotalPaid.setText("Paid: " + currencyFormat.format(person.getTotalPaid()));
+            public void bind(PersonRow row) {
+                tvName.setText(row.name);
+                tvTotalPaid.setText(Formatters.appendMoney(new StringBuilder("Paid: "), row.totalPaidCents, Money.DEFAULT_CURRENCY));
 
                 // Set initial
-                if (!person.getName().isEmpty()) {
-                    tvInitial.setText(String.valueOf(person.getName().charAt(0)).toUpperCase());
+                if (!row.name.isEmpty()) {
+                    tvInitial.setText(String.valueOf(row.name.charAt(0)).toUpperCase());
                 }
 
                 // Set color
                 try {
                     colorIndicator.setBackgroundColor(
-                            android.graphics.Color.parseColor(person.getColorHex()));
+                            android.graphics.Color.parseColor(row.colorHex));
                 } catch (Exception e) {
                     colorIndicator.setBackgroundColor(0xFF6200EE);
                 }
 
                 // Set expense count
-                List<Expense> personExpenses = DataStore.getInstance().getExpensesByPerson(person.getId());
-                String expenseText = personExpenses.size() + " expense" + (personExpenses.size() != 1 ? "s" : "");
+                String expenseText = row.expenseCount + " expense" + (row.expenseCount != 1 ? "s" : "");
                 tvExpenseCount.setText(expenseText);
             }
         }
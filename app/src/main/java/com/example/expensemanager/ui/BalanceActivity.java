@@ -2,7 +2,6 @@ package com.example.expensemanager.ui;
 
 import android.graphics.Color;
 import android.os.Bundle;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.MenuItem;
 import android.view.View;
@@ -15,16 +14,14 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.expensemanager.R;
+import com.example.expensemanager.model.Money;
 import com.example.expensemanager.model.Person;
+import com.example.expensemanager.utils.Balances;
 import com.example.expensemanager.utils.Calculator;
 import com.example.expensemanager.utils.DataStore;
+import com.example.expensemanager.utils.Formatters;
 
-import java.text.NumberFormat;
-import java.util.AbstractMap;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
 
 public class BalanceActivity extends AppCompatActivity {
 
@@ -63,35 +60,26 @@ public class BalanceActivity extends AppCompatActivity {
     private void calculateAndDisplayBalances() {
         DataStore dataStore = DataStore.getInstance();
         List<Person> people = dataStore.getPeople();
-        double totalExpenses = dataStore.getTotalExpenses();
-
-        NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
+        long totalCents = dataStore.getTotalExpensesCents();
 
         // Update total expenses
-        tvTotalExpenses.setText(currencyFormat.format(totalExpenses));
+        tvTotalExpenses.setText(Formatters.formatMoney(totalCents, Money.DEFAULT_CURRENCY));
 
         if (people.isEmpty()) {
-            tvSharePerPerson.setText("$0.00");
+            tvSharePerPerson.setText(Formatters.formatMoney(0, Money.DEFAULT_CURRENCY));
             return;
         }
 
         // Calculate share per person
-        double sharePerPerson = totalExpenses / people.size();
-        tvSharePerPerson.setText(currencyFormat.format(sharePerPerson));
+        long shareCents = Money.share(totalCents, people.size(), people.size() - 1);
+        tvSharePerPerson.setText(Formatters.formatMoney(shareCents, Money.DEFAULT_CURRENCY));
 
         // Calculate balances
-        Map<Person, Double> balances = Calculator.calculateBalances(people, totalExpenses);
-        for (Map.Entry<Person, Double> entry : balances.entrySet()) {
-            Person person = entry.getKey();
-            Double balance = entry.getValue();
-            Log.d("Blance", "person: "+person+" balance: "+balance);
-        }
-
+        Balances balances = dataStore.getBalances();
 
         // Update balance list
         balanceAdapter = new BalanceAdapter(balances);
 
-
         recyclerViewBalances.setAdapter(balanceAdapter);
 
         // Calculate and display settlements
@@ -119,33 +107,14 @@ public class BalanceActivity extends AppCompatActivity {
         return super.onOptionsItemSelected(item);
     }
 
-
-
     // Balance Adapter
     private static class BalanceAdapter extends RecyclerView.Adapter<BalanceAdapter.BalanceViewHolder> {
 
-        private final List<Map.Entry<Person, Double>> balanceList;
-        private final NumberFormat currencyFormat;
-        private static final String TAG = "BalanceAdapter";
-
-        public BalanceAdapter(Map<Person, Double> balances) {
-            Log.d(TAG, "=== Adapter Constructor ===");
-            Log.d(TAG, "Input balances size: " + balances.size());
-
-            // Create DEEP copies of entries
-            this.balanceList = new ArrayList<>();
-            for (Map.Entry<Person, Double> entry : balances.entrySet()) {
-                // Create new immutable entry
-                Map.Entry<Person, Double> newEntry = new AbstractMap.SimpleEntry<>(
-                        entry.getKey(), // Person is likely immutable
-                        entry.getValue() // Double is immutable
-                );
-                balanceList.add(newEntry);
-                Log.d(TAG, "Added: " + entry.getKey().getName() + " = " + entry.getValue());
-            }
+        // Balances is immutable, so the adapter can hold it directly
+        private final Balances balances;
 
-            this.currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
-            Log.d(TAG, "BalanceList size: " + balanceList.size());
+        public BalanceAdapter(Balances balances) {
+            this.balances = balances;
         }
 
         @NonNull
@@ -158,31 +127,25 @@ public class BalanceActivity extends AppCompatActivity {
 
         @Override
         public void onBindViewHolder(@NonNull BalanceViewHolder holder, int position) {
-            Map.Entry<Person, Double> entry = balanceList.get(position);
-            Person person = entry.getKey();
-            double balance = entry.getValue();
+            Person person = balances.getPerson(position);
+            long balanceCents = balances.getCents(position);
 
             holder.tvName.setText(person.getName());
 
-            Log.d(TAG,
-                    "Person: " + person.getName() +
-                            " | Balance: " + balance +
-                            " | Position: " + position);
-
             // Set color based on balance
-            if (balance > 0) {
+            if (balanceCents > 0) {
                 // Positive - should receive money
                 holder.tvStatus.setText("Should Receive");
                 holder.tvStatus.setTextColor(Color.parseColor("#2E7D32")); // Green
-                holder.tvBalance.setText("- " + String.format("%.2f", Math.abs(balance)));
+                holder.tvBalance.setText(Formatters.appendMoney(new StringBuilder("- "), balanceCents, Money.DEFAULT_CURRENCY));
                 holder.tvBalance.setTextColor(Color.parseColor("#2E7D32"));
                 holder.ivIcon.setImageResource(R.drawable.ic_arrow_upward);
                 holder.ivIcon.setColorFilter(Color.parseColor("#2E7D32"));
-            } else if (balance < 0) {
+            } else if (balanceCents < 0) {
                 // Negative - should pay
                 holder.tvStatus.setText("Should Pay");
                 holder.tvStatus.setTextColor(Color.parseColor("#D32F2F")); // Red
-                holder.tvBalance.setText("+ " + String.format("%.2f", Math.abs(balance)));
+                holder.tvBalance.setText(Formatters.appendMoney(new StringBuilder("+ "), -balanceCents, Money.DEFAULT_CURRENCY));
                 holder.tvBalance.setTextColor(Color.parseColor("#D32F2F"));
                 holder.ivIcon.setImageResource(R.drawable.ic_arrow_downward);
                 holder.ivIcon.setColorFilter(Color.parseColor("#D32F2F"));
@@ -190,7 +153,7 @@ public class BalanceActivity extends AppCompatActivity {
                 // Zero - settled
                 holder.tvStatus.setText("Settled Up");
                 holder.tvStatus.setTextColor(Color.parseColor("#757575")); // Gray
-                holder.tvBalance.setText("$0.00 ");
+                holder.tvBalance.setText(Formatters.formatMoney(0, Money.DEFAULT_CURRENCY));
                 holder.tvBalance.setTextColor(Color.parseColor("#757575"));
                 holder.ivIcon.setImageResource(R.drawable.ic_check_circle);
                 holder.ivIcon.setColorFilter(Color.parseColor("#757575"));
@@ -206,7 +169,7 @@ public class BalanceActivity extends AppCompatActivity {
 
         @Override
         public int getItemCount() {
-            return balanceList.size();
+            return balances.size();
         }
 
         static class BalanceViewHolder extends RecyclerView.ViewHolder {
@@ -229,11 +192,9 @@ public class BalanceActivity extends AppCompatActivity {
     private static class SettlementAdapter extends RecyclerView.Adapter<SettlementAdapter.SettlementViewHolder> {
 
         private final List<Calculator.Settlement> settlements;
-        private final NumberFormat currencyFormat;
 
         public SettlementAdapter(List<Calculator.Settlement> settlements) {
             this.settlements = settlements;
-            this.currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
         }
 
         @NonNull
@@ -250,7 +211,7 @@ public class BalanceActivity extends AppCompatActivity {
 
             holder.tvFrom.setText(settlement.getFrom().getName());
             holder.tvTo.setText(settlement.getTo().getName());
-            holder.tvAmount.setText(currencyFormat.format(settlement.getAmount()));
+            holder.tvAmount.setText(Formatters.formatMoney(settlement.getAmountCents(), Money.DEFAULT_CURRENCY));
 
             // Set colors
             try {
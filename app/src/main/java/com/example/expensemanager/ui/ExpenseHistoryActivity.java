@@ -2,45 +2,87 @@ package com.example.expensemanager.ui;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.LayoutInflater;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.Filter;
-import android.widget.Filterable;
+import android.widget.EditText;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.core.util.Pair;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.expensemanager.R;
 import com.example.expensemanager.model.Expense;
+import com.example.expensemanager.model.Money;
 import com.example.expensemanager.model.Person;
 import com.example.expensemanager.utils.DataStore;
+import com.example.expensemanager.utils.ExpenseCursor;
+import com.example.expensemanager.utils.ExpensePage;
+import com.example.expensemanager.utils.ExpenseQuery;
+import com.example.expensemanager.utils.Facet;
+import com.example.expensemanager.utils.Formatters;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
+import com.google.android.material.datepicker.MaterialDatePicker;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
-import java.text.NumberFormat;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Calendar;
+import java.util.Date;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
-import java.util.Set;
+import java.util.Objects;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 public class ExpenseHistoryActivity extends AppCompatActivity {
 
     private RecyclerView recyclerView;
     private ExpenseAdapter adapter;
     private TextView tvEmptyState, tvTotalExpenses, tvExpenseCount;
-    private View emptyStateLayout;
+    private View emptyStateLayout, searchBar;
+    private EditText etSearch;
     private ChipGroup chipGroupFilters;
     private FloatingActionButton fabAddExpense;
+    private Chip chipAll, chipDates, chipAmount;
+
+    private static final int PAGE_SIZE = 50;
+    // Load the next page once the last visible row is this close to the end
+    private static final int PREFETCH_DISTANCE = 15;
+    private final ExecutorService pageLoader = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Set while chips are checked from code so their listeners don't re-filter
+    private boolean updatingChips;
+
+    private static final long SEARCH_DELAY_MS = 250;
+    private static final String DATES_LABEL = "Dates";
+    private static final String AMOUNT_LABEL = "Amount";
+    private final Runnable runSearch = () -> {
+        ExpenseQuery query = adapter.getQuery().copy();
+        query.setText(etSearch.getText().toString());
+        applyQuery(query);
+    };
+
+    // The history is only re-queried after a change that touches expenses or payers
+    private boolean stale = true;
+    private long shownVersion;
+    private final DataStore.ChangeListener changeListener = change -> {
+        if (change.affectsExpenses() && change.getVersion() > shownVersion) {
+            stale = true;
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -56,18 +98,30 @@ public class ExpenseHistoryActivity extends AppCompatActivity {
         }
         initViews();
         setupRecyclerView();
-        setupFilterChips();
-        updateUI();
+        setupSearch();
+        // The first page, the chips and the totals are loaded by onResume(), since the
+        // screen starts out stale
 
         fabAddExpense.setOnClickListener(v -> {
             startActivity(new Intent(this, AddExpenseActivity.class));
         });
+        DataStore.getInstance().addChangeListener(changeListener);
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        refreshData();
+        if (stale) {
+            refreshData();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        DataStore.getInstance().removeChangeListener(changeListener);
+        mainHandler.removeCallbacksAndMessages(null);
+        pageLoader.shutdownNow();
+        super.onDestroy();
     }
 
     private void initViews() {
@@ -76,73 +130,255 @@ public class ExpenseHistoryActivity extends AppCompatActivity {
         tvTotalExpenses = findViewById(R.id.tvTotalExpenses);
         tvExpenseCount = findViewById(R.id.tvExpenseCount);
         emptyStateLayout = findViewById(R.id.emptyState);
+        searchBar = findViewById(R.id.searchBar);
+        etSearch = findViewById(R.id.etSearch);
         chipGroupFilters = findViewById(R.id.chipGroupFilters);
         fabAddExpense = findViewById(R.id.fabAddExpense);
     }
 
     private void setupRecyclerView() {
-        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        recyclerView.setLayoutManager(layoutManager);
         adapter = new ExpenseAdapter();
         recyclerView.setAdapter(adapter);
+
+        // Fetch the next page before the user reaches the end of what is loaded
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                    adapter.loadMore();
+                }
+            }
+        });
+    }
+
+    private void setupSearch() {
+        etSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                if (updatingChips) return;
+                // Only search once typing pauses
+                mainHandler.removeCallbacks(runSearch);
+                mainHandler.postDelayed(runSearch, SEARCH_DELAY_MS);
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {}
+        });
     }
 
     private void setupFilterChips() {
         // Clear existing chips
         chipGroupFilters.removeAllViews();
 
-        // Add "All" chip
-        Chip chipAll = new Chip(this);
+        // Add "All" chip; it is checked exactly when no other filter is
+        chipAll = new Chip(this);
         chipAll.setText("All");
         chipAll.setCheckable(true);
         chipAll.setChecked(true);
         chipAll.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            if (updatingChips) return;
             if (isChecked) {
-                adapter.filter(null, null);
-                chipGroupFilters.clearCheck();
-                chipAll.setChecked(true);
+                clearFilters();
+                adapter.setQuery(new ExpenseQuery());
+            } else {
+                applyQuery(adapter.getQuery());
             }
         });
         chipGroupFilters.addView(chipAll);
 
+        // Date and amount ranges are picked in a dialog; unchecking the chip drops the range
+        chipDates = rangeChip(DATES_LABEL, this::pickDateRange,
+                query -> query.setDateRange(Long.MIN_VALUE, Long.MAX_VALUE));
+        chipAmount = rangeChip(AMOUNT_LABEL, this::pickAmountRange,
+                query -> query.setAmountRange(Long.MIN_VALUE, Long.MAX_VALUE));
+
+        // Person and category chips combine: any checked person and any checked category.
+        // Both come from the ledger's facets, so building the bar never walks the expenses.
+        DataStore dataStore = DataStore.getInstance();
+
         // Add person filters
-        Set<String> addedPeople = new HashSet<>();
-        for (Expense expense : DataStore.getInstance().getExpenses()) {
-            String personName = expense.getPaidBy().getName();
-            if (!addedPeople.contains(personName)) {
-                addedPeople.add(personName);
-                Chip chip = new Chip(this);
-                chip.setText(personName);
-                chip.setCheckable(true);
-                chip.setOnCheckedChangeListener((buttonView, isChecked) -> {
-                    if (isChecked) {
-                        adapter.filter(personName, null);
-                    }
-                });
-                chipGroupFilters.addView(chip);
+        for (Facet facet : dataStore.getPayerFacets()) {
+            String personId = facet.getKey();
+            Person person = dataStore.getPersonById(personId);
+            if (person == null) {
+                continue;
             }
+            Chip chip = new Chip(this);
+            chip.setText(chipLabel(person.getName(), facet));
+            chip.setCheckable(true);
+            chip.setOnCheckedChangeListener((buttonView, isChecked) -> {
+                if (updatingChips) return;
+                ExpenseQuery query = adapter.getQuery().copy();
+                if (isChecked) {
+                    query.addPerson(personId);
+                } else {
+                    query.removePerson(personId);
+                }
+                applyQuery(query);
+            });
+            chipGroupFilters.addView(chip);
         }
 
         // Add category filters
-        Set<String> addedCategories = new HashSet<>();
-        for (Expense expense : DataStore.getInstance().getExpenses()) {
-            String category = expense.getCategory();
-            if (!addedCategories.contains(category)) {
-                addedCategories.add(category);
-                Chip chip = new Chip(this);
-                chip.setText(category);
-                chip.setCheckable(true);
-                chip.setOnCheckedChangeListener((buttonView, isChecked) -> {
-                    if (isChecked) {
-                        adapter.filter(null, category);
-                    }
-                });
-                chipGroupFilters.addView(chip);
+        for (Facet facet : dataStore.getCategoryFacets()) {
+            String category = facet.getKey();
+            Chip chip = new Chip(this);
+            chip.setText(chipLabel(category, facet));
+            chip.setCheckable(true);
+            chip.setOnCheckedChangeListener((buttonView, isChecked) -> {
+                if (updatingChips) return;
+                ExpenseQuery query = adapter.getQuery().copy();
+                if (isChecked) {
+                    query.addCategory(category);
+                } else {
+                    query.removeCategory(category);
+                }
+                applyQuery(query);
+            });
+            chipGroupFilters.addView(chip);
+        }
+    }
+
+    private static String chipLabel(String name, Facet facet) {
+        return name + " (" + facet.getCount() + ")";
+    }
+
+    private Chip rangeChip(String label, Runnable pick, Consumer<ExpenseQuery> clear) {
+        Chip chip = new Chip(this);
+        chip.setText(label);
+        chip.setCheckable(true);
+        chip.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            if (updatingChips) return;
+            if (isChecked) {
+                // Only checked once a range has been picked
+                setChecked(chip, false);
+                pick.run();
+            } else {
+                ExpenseQuery query = adapter.getQuery().copy();
+                clear.accept(query);
+                chip.setText(label);
+                applyQuery(query);
             }
+        });
+        chipGroupFilters.addView(chip);
+        return chip;
+    }
+
+    private void setChecked(Chip chip, boolean checked) {
+        updatingChips = true;
+        chip.setChecked(checked);
+        updatingChips = false;
+    }
+
+    private void pickDateRange() {
+        MaterialDatePicker<Pair<Long, Long>> picker = MaterialDatePicker.Builder.dateRangePicker()
+                .setTitleText("Expense dates")
+                .build();
+        picker.addOnPositiveButtonClickListener(selection -> {
+            long from = startOfLocalDay(selection.first, 0);
+            long to = startOfLocalDay(selection.second, 1) - 1;
+            ExpenseQuery query = adapter.getQuery().copy();
+            query.setDateRange(from, to);
+            setChecked(chipDates, true);
+            chipDates.setText(Formatters.formatDate(new Date(from)) + " – " + Formatters.formatDate(new Date(to)));
+            applyQuery(query);
+        });
+        picker.show(getSupportFragmentManager(), "dateRange");
+    }
+
+    // The picker hands out days as midnights in UTC; expenses are dated in local time
+    private static long startOfLocalDay(long utcMidnight, int plusDays) {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        utc.setTimeInMillis(utcMidnight);
+        Calendar local = Calendar.getInstance();
+        local.clear();
+        local.set(utc.get(Calendar.YEAR), utc.get(Calendar.MONTH), utc.get(Calendar.DAY_OF_MONTH) + plusDays);
+        return local.getTimeInMillis();
+    }
+
+    private void pickAmountRange() {
+        View dialogView = LayoutInflater.from(this).inflate(R.layout.dialog_amount_range, null);
+        EditText etMin = dialogView.findViewById(R.id.etMinAmount);
+        EditText etMax = dialogView.findViewById(R.id.etMaxAmount);
+
+        new androidx.appcompat.app.AlertDialog.Builder(this)
+                .setTitle("Amount range")
+                .setView(dialogView)
+                .setPositiveButton("Apply", (dialog, which) -> {
+                    long min;
+                    long max;
+                    try {
+                        // A field left empty leaves that end of the range open
+                        min = parseBound(etMin, Long.MIN_VALUE);
+                        max = parseBound(etMax, Long.MAX_VALUE);
+                    } catch (NumberFormatException | ArithmeticException e) {
+                        Toast.makeText(this, "Please enter valid amounts", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    if (min > max) {
+                        Toast.makeText(this, "The minimum is above the maximum", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    if (min == Long.MIN_VALUE && max == Long.MAX_VALUE) {
+                        return;
+                    }
+                    ExpenseQuery query = adapter.getQuery().copy();
+                    query.setAmountRange(min, max);
+                    setChecked(chipAmount, true);
+                    chipAmount.setText(amountLabel(min, max));
+                    applyQuery(query);
+                })
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private static long parseBound(EditText field, long open) {
+        String text = field.getText().toString().trim();
+        return text.isEmpty() ? open : Money.parse(text);
+    }
+
+    private static String amountLabel(long min, long max) {
+        if (min == Long.MIN_VALUE) {
+            return "≤ " + Formatters.formatMoney(max, Money.DEFAULT_CURRENCY);
+        }
+        if (max == Long.MAX_VALUE) {
+            return "≥ " + Formatters.formatMoney(min, Money.DEFAULT_CURRENCY);
+        }
+        return Formatters.formatMoney(min, Money.DEFAULT_CURRENCY) + " – "
+                + Formatters.formatMoney(max, Money.DEFAULT_CURRENCY);
+    }
+
+    // Unchecks every filter chip and empties the search box, without re-filtering
+    private void clearFilters() {
+        updatingChips = true;
+        mainHandler.removeCallbacks(runSearch);
+        chipGroupFilters.clearCheck();
+        if (chipAll != null) {
+            chipAll.setChecked(true);
+            chipDates.setText(DATES_LABEL);
+            chipAmount.setText(AMOUNT_LABEL);
         }
+        etSearch.setText("");
+        updatingChips = false;
+    }
+
+    private void applyQuery(ExpenseQuery query) {
+        updatingChips = true;
+        chipAll.setChecked(query.isEmpty());
+        updatingChips = false;
+        adapter.setQuery(query);
     }
 
     private void refreshData() {
         if (adapter != null) {
+            shownVersion = DataStore.getInstance().getVersion();
+            stale = false;
+            clearFilters();
             adapter.refreshData();
             setupFilterChips();
             updateUI();
@@ -150,33 +386,25 @@ public class ExpenseHistoryActivity extends AppCompatActivity {
     }
 
     private void updateUI() {
-        List<Expense> allExpenses = DataStore.getInstance().getExpenses();
-
-        if (allExpenses.isEmpty()) {
+        if (DataStore.getInstance().getExpenseCount() == 0) {
             // Show empty state
             recyclerView.setVisibility(View.GONE);
             emptyStateLayout.setVisibility(View.VISIBLE);
+            searchBar.setVisibility(View.GONE);
             chipGroupFilters.setVisibility(View.GONE);
         } else {
             // Show data
             recyclerView.setVisibility(View.VISIBLE);
             emptyStateLayout.setVisibility(View.GONE);
+            searchBar.setVisibility(View.VISIBLE);
             chipGroupFilters.setVisibility(View.VISIBLE);
-
-            // Update statistics
-            updateStatistics(allExpenses);
+            // Statistics follow the filter results
         }
     }
 
-    private void updateStatistics(List<Expense> expenses) {
-        double total = 0;
-        for (Expense expense : expenses) {
-            total += expense.getAmount();
-        }
-
-        NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
-        tvTotalExpenses.setText(currencyFormat.format(total));
-        tvExpenseCount.setText(String.valueOf(expenses.size()));
+    private void updateStatistics(long totalCents, int count) {
+        tvTotalExpenses.setText(Formatters.formatMoney(totalCents, Money.DEFAULT_CURRENCY));
+        tvExpenseCount.setText(String.valueOf(count));
     }
 
     // Called from empty state button
@@ -191,43 +419,135 @@ public class ExpenseHistoryActivity extends AppCompatActivity {
         }
         return super.onOptionsItemSelected(item);
     }
-    // Expense Adapter
-    private class ExpenseAdapter extends RecyclerView.Adapter<ExpenseAdapter.ExpenseViewHolder> implements Filterable {
+    // What one row shows, copied out of the Expense. Expenses and people are changed in
+    // place, so DiffUtil needs its own copy to tell whether a row really changed.
+    static final class ExpenseRow {
+        static final DiffUtil.ItemCallback<ExpenseRow> DIFF = new DiffUtil.ItemCallback<ExpenseRow>() {
+            @Override
+            public boolean areItemsTheSame(@NonNull ExpenseRow oldRow, @NonNull ExpenseRow newRow) {
+                return oldRow.id.equals(newRow.id);
+            }
 
-        private List<Expense> originalList;
-        private List<Expense> filteredList;
-        private SimpleDateFormat dateFormat;
-        private NumberFormat currencyFormat;
+            @Override
+            public boolean areContentsTheSame(@NonNull ExpenseRow oldRow, @NonNull ExpenseRow newRow) {
+                return oldRow.sameContents(newRow);
+            }
+        };
+
+        final Expense expense;
+        final String id;
+        final String description;
+        final long amountCents;
+        final String payerName;
+        final String payerColor;
+        final Date date;
+        final String category;
+        // Rendered with the row on the loader thread, so binding only sets text
+        final String amountText;
+        final String dateText;
+
+        ExpenseRow(Expense expense) {
+            this.expense = expense;
+            this.id = expense.getId();
+            this.description = expense.getDescription();
+            this.amountCents = expense.getAmountCents();
+            this.payerName = expense.getPaidBy().getName();
+            this.payerColor = expense.getPaidBy().getColorHex();
+            this.date = expense.getDate();
+            this.category = expense.getCategory();
+            this.amountText = Formatters.formatMoney(amountCents, expense.getCurrency());
+            this.dateText = Formatters.formatDate(date);
+        }
+
+        boolean sameContents(ExpenseRow other) {
+            return amountCents == other.amountCents
+                    && Objects.equals(description, other.description)
+                    && Objects.equals(payerName, other.payerName)
+                    && Objects.equals(payerColor, other.payerColor)
+                    && Objects.equals(date, other.date)
+                    && Objects.equals(category, other.category);
+        }
+    }
+
+    // Expense Adapter; rows are diffed off the main thread so only changed rows rebind.
+    // Expenses are read a page at a time, newest first, as the list is scrolled.
+    private class ExpenseAdapter extends ListAdapter<ExpenseRow, ExpenseAdapter.ExpenseViewHolder> {
+
+        // Replaced on the main thread, read by the loader threads
+        private volatile ExpenseQuery query = new ExpenseQuery();
+        // Pages loaded so far for the current query and where the next one starts
+        private final List<ExpenseRow> loaded = new ArrayList<>();
+        private ExpenseCursor next;
+        private boolean loadingMore;
+        private final StableIds stableIds = new StableIds();
 
         public ExpenseAdapter() {
-            this.originalList = DataStore.getInstance().getExpenses();
-            this.filteredList = new ArrayList<>(originalList);
-            this.dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-            this.currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
+            super(ExpenseRow.DIFF);
+            setHasStableIds(true);
         }
 
+        // Reloads from the first page; the chips are rebuilt with it, so filters start over
         public void refreshData() {
-            this.originalList = DataStore.getInstance().getExpenses();
-            this.filteredList = new ArrayList<>(originalList);
-            notifyDataSetChanged();
+            setQuery(new ExpenseQuery());
         }
 
-        public void filter(String personName, String category) {
-            filteredList.clear();
+        public ExpenseQuery getQuery() {
+            return query;
+        }
 
-            for (Expense expense : originalList) {
-                boolean matchesPerson = personName == null ||
-                        expense.getPaidBy().getName().equals(personName);
-                boolean matchesCategory = category == null ||
-                        expense.getCategory().equals(category);
+        // The query must not be changed after this call. Its first page, with the count
+        // and total of every match, is read on the loader thread.
+        public void setQuery(ExpenseQuery query) {
+            this.query = query;
+            this.next = null;
+            this.loadingMore = false;
+            pageLoader.execute(() -> {
+                // Skip queries that were replaced before they started
+                if (query != this.query) return;
+                ExpensePage page = DataStore.getInstance().getExpensePage(query, null, PAGE_SIZE);
+                List<ExpenseRow> rows = toRows(page.getExpenses());
+                mainHandler.post(() -> {
+                    // Results for a query that has since been replaced are stale
+                    if (query != this.query) return;
+                    loaded.clear();
+                    loaded.addAll(rows);
+                    next = page.getNext();
+                    submitList(new ArrayList<>(loaded));
+                    updateStatistics(page.getMatchTotalCents(), page.getMatchCount());
+                });
+            });
+        }
 
-                if (matchesPerson && matchesCategory) {
-                    filteredList.add(expense);
-                }
+        public void loadMore() {
+            if (loadingMore || next == null) return;
+            loadingMore = true;
+            ExpenseQuery requested = query;
+            ExpenseCursor after = next;
+            pageLoader.execute(() -> {
+                ExpensePage page = DataStore.getInstance().getExpensePage(requested, after, PAGE_SIZE);
+                List<ExpenseRow> rows = toRows(page.getExpenses());
+                mainHandler.post(() -> {
+                    // The query or data was replaced while this page loaded
+                    if (requested != query || after != next) return;
+                    loaded.addAll(rows);
+                    next = page.getNext();
+                    loadingMore = false;
+                    submitList(new ArrayList<>(loaded));
+                });
+            });
+        }
+
+        private List<ExpenseRow> toRows(List<Expense> expenses) {
+            List<ExpenseRow> rows = new ArrayList<>(expenses.size());
+            for (Expense expense : expenses) {
+                rows.add(new ExpenseRow(expense));
             }
+            return rows;
+        }
 
-            notifyDataSetChanged();
-            updateStatistics(filteredList);
+        @Override
+        public long getItemId(int position) {
+            return stableIds.of(getItem(position).id);
         }
 
         @NonNull
@@ -240,35 +560,15 @@ public class ExpenseHistoryActivity extends AppCompatActivity {
 
         @Override
         public void onBindViewHolder(@NonNull ExpenseViewHolder holder, int position) {
-            Expense expense = filteredList.get(position);
-            holder.bind(expense);
+            ExpenseRow row = getItem(position);
+            holder.bind(row);
 
             holder.itemView.setOnLongClickListener(v -> {
-                showExpenseDetails(expense);
+                showExpenseDetails(row.expense);
                 return true;
             });
         }
 
-        @Override
-        public int getItemCount() {
-            return filteredList.size();
-        }
-
-        @Override
-        public Filter getFilter() {
-            return new Filter() {
-                @Override
-                protected FilterResults performFiltering(CharSequence constraint) {
-                    return null;
-                }
-
-                @Override
-                protected void publishResults(CharSequence constraint, FilterResults results) {
-                    // Not used
-                }
-            };
-        }
-
         private void showExpenseDetails(Expense expense) {
             // Create a custom dialog to show expense details
             androidx.appcompat.app.AlertDialog.Builder builder = new androidx.appcompat.app.AlertDialog.Builder(ExpenseHistoryActivity.this);
@@ -284,10 +584,10 @@ public class ExpenseHistoryActivity extends AppCompatActivity {
             TextView tvDialogDate = dialogView.findViewById(R.id.tvDialogDate);
 
             tvDialogDescription.setText(expense.getDescription());
-            tvDialogAmount.setText(currencyFormat.format(expense.getAmount()));
+            tvDialogAmount.setText(Formatters.formatMoney(expense.getAmountCents(), expense.getCurrency()));
             tvDialogPerson.setText("Paid by: " + expense.getPaidBy().getName());
             tvDialogCategory.setText("Category: " + expense.getCategory());
-            tvDialogDate.setText("Date: " + dateFormat.format(expense.getDate()));
+            tvDialogDate.setText("Date: " + Formatters.formatDate(expense.getDate()));
 
             builder.setView(dialogView)
                     .setTitle("Expense Details")
@@ -303,12 +603,10 @@ public class ExpenseHistoryActivity extends AppCompatActivity {
             new androidx.appcompat.app.AlertDialog.Builder(ExpenseHistoryActivity.this)
                     .setTitle("Delete Expense")
                     .setMessage("Are you sure you want to delete '" + expense.getDescription() +
-                            "' for " + currencyFormat.format(expense.getAmount()) + "?")
+                            "' for " + Formatters.formatMoney(expense.getAmountCents(), expense.getCurrency()) + "?")
                     .setPositiveButton("DELETE", (dialog, which) -> {
                         DataStore.getInstance().removeExpense(expense.getId());
-                        refreshData();
-                        updateUI();
-                        setupFilterChips();
+                        ExpenseHistoryActivity.this.refreshData();
                     })
                     .setNegativeButton("CANCEL", null)
                     .show();
@@ -329,41 +627,25 @@ public class ExpenseHistoryActivity extends AppCompatActivity {
                 colorIndicator = itemView.findViewById(R.id.colorIndicator);
             }
 
-            public void bind(Expense expense) {
-                tvDescription.setText(expense.getDescription());
-                tvAmount.setText(currencyFormat.format(expense.getAmount()));
-                tvPerson.setText(expense.getPaidBy().getName());
-                tvDate.setText(dateFormat.format(expense.getDate()));
-                tvCategory.setText(expense.getCategory());
+            public void bind(ExpenseRow row) {
+                tvDescription.setText(row.description);
+                tvAmount.setText(row.amountText);
+                tvPerson.setText(row.payerName);
+                tvDate.setText(row.dateText);
+                tvCategory.setText(row.category);
 
                 // Set initial and color
-                Person person = expense.getPaidBy();
-                if (!person.getName().isEmpty()) {
-                    tvInitial.setText(String.valueOf(person.getName().charAt(0)).toUpperCase());
+                if (!row.payerName.isEmpty()) {
+                    tvInitial.setText(String.valueOf(row.payerName.charAt(0)).toUpperCase());
                 }
 
                 try {
                     colorIndicator.setBackgroundColor(
-                            android.graphics.Color.parseColor(person.getColorHex()));
+                            android.graphics.Color.parseColor(row.payerColor));
                 } catch (Exception e) {
                     colorIndicator.setBackgroundColor(0xFF6200EE);
                 }
             }
         }
     }
-
-    // Calculate category distribution
-    private Map<String, Double> getCategoryDistribution() {
-        Map<String, Double> distribution = new HashMap<>();
-        List<Expense> expenses = DataStore.getInstance().getExpenses();
-
-        for (Expense expense : expenses) {
-            String category = expense.getCategory();
-            double amount = expense.getAmount();
-
-            distribution.put(category, distribution.getOrDefault(category, 0.0) + amount);
-        }
-
-        return distribution;
-    }
 }
\ No newline at end of file
@@ -12,19 +12,21 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.cardview.widget.CardView;
 
 import com.example.expensemanager.R;
+import com.example.expensemanager.model.Money;
 import com.example.expensemanager.utils.Calculator;
 import com.example.expensemanager.utils.DataStore;
+import com.example.expensemanager.utils.Formatters;
 
-import java.text.NumberFormat;
 import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 
 public class MainActivity extends AppCompatActivity {
 
     private TextView tvTotalExpenses, tvTotalPeople, tvAverageExpense;
     private CardView cardPeople, cardExpenses, cardBalances, cardHistory;
     private CardView cardSettle;
+    // DataStore version the stats were drawn from
+    private long shownVersion = -1;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -41,12 +43,24 @@ public class MainActivity extends AppCompatActivity {
         initViews();
         updateStats();
         setupClickListeners();
+
+        DataStore.getInstance().whenReady(() -> {
+            if (DataStore.getInstance().getLoadError() != null && !isDestroyed()) {
+                Toast.makeText(this, "Could not load your data. Nothing will be saved until the app restarts.",
+                        Toast.LENGTH_LONG).show();
+            }
+        });
     }
 
     @Override
     protected void onResume() {
         super.onResume();
-        updateStats();
+        // Nothing to redraw unless the data changed while another screen was open. Until
+        // the first load ends, the callback updateStats() registered in onCreate() redraws.
+        DataStore dataStore = DataStore.getInstance();
+        if (dataStore.isReady() && dataStore.getVersion() != shownVersion) {
+            updateStats();
+        }
     }
 
     @Override
@@ -100,15 +114,27 @@ public class MainActivity extends AppCompatActivity {
 
     private void updateStats() {
         DataStore dataStore = DataStore.getInstance();
-        int totalPeople = dataStore.getPeople().size();
-        double totalExpenses = dataStore.getTotalExpenses();
-        double average = totalPeople > 0 ? totalExpenses / totalPeople : 0;
+        if (!dataStore.isReady()) {
+            // Show placeholders until the first load has finished
+            tvTotalExpenses.setText("—");
+            tvTotalPeople.setText("—");
+            tvAverageExpense.setText("—");
+            dataStore.whenReady(() -> {
+                if (!isDestroyed()) {
+                    updateStats();
+                }
+            });
+            return;
+        }
 
-        NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
+        shownVersion = dataStore.getVersion();
+        int totalPeople = dataStore.getPeople().size();
+        long totalCents = dataStore.getTotalExpensesCents();
+        long averageCents = totalPeople > 0 ? totalCents / totalPeople : 0;
 
-        tvTotalExpenses.setText(currencyFormat.format(totalExpenses));
+        tvTotalExpenses.setText(Formatters.formatMoney(totalCents, Money.DEFAULT_CURRENCY));
         tvTotalPeople.setText(String.valueOf(totalPeople));
-        tvAverageExpense.setText(currencyFormat.format(average));
+        tvAverageExpense.setText(Formatters.formatMoney(averageCents, Money.DEFAULT_CURRENCY));
     }
 
     private void setupClickListeners() {
@@ -130,6 +156,12 @@ public class MainActivity extends AppCompatActivity {
 
         findViewById(R.id.fabAddExpense).setOnClickListener(v ->
                 startActivity(new Intent(this, AddExpenseActivity.class)));
+
+        // Hidden: long-press the toolbar for the performance metrics screen
+        findViewById(R.id.toolbar).setOnLongClickListener(v -> {
+            startActivity(new Intent(this, MetricsActivity.class));
+            return true;
+        });
     }
 
     private void showEndCycleDialog() {
@@ -149,31 +181,26 @@ public class MainActivity extends AppCompatActivity {
 
         if (dataStore.getPeople().isEmpty()) {
             summary.append("No people added yet.\n");
-        } else if (dataStore.getExpenses().isEmpty()) {
+        } else if (dataStore.getExpenseCount() == 0) {
             summary.append("No expenses recorded yet.\n");
         } else {
             summary.append("Cycle Summary:\n");
-            summary.append("Total Expenses: ").append(
-                    NumberFormat.getCurrencyInstance(Locale.US).format(dataStore.getTotalExpenses())
-            ).append("\n");
+            summary.append("Total Expenses: ");
+            Formatters.appendMoney(summary, dataStore.getTotalExpensesCents(), Money.DEFAULT_CURRENCY).append("\n");
             summary.append("People: ").append(dataStore.getPeople().size()).append("\n");
             summary.append("\nSettlement Suggestions:\n");
 
             // Get settlement suggestions
             List<Calculator.Settlement> settlements =
-                    Calculator.getSettlementSuggestions(
-                            Calculator.calculateBalances(
-                                    dataStore.getPeople(),
-                                    dataStore.getTotalExpenses()
-                            )
-                    );
+                    Calculator.getSettlementSuggestions(dataStore.getBalances());
 
             if (settlements.isEmpty()) {
                 summary.append("All settled up! ✓\n");
             } else {
                 for (Calculator.Settlement s : settlements) {
-                    summary.append(String.format("• %s → %s: $%.2f\n",
-                            s.getFrom().getName(), s.getTo().getName(), s.getAmount()));
+                    summary.append("• ").append(s.getFrom().getName())
+                            .append(" → ").append(s.getTo().getName()).append(": ");
+                    Formatters.appendMoney(summary, s.getAmountCents(), Money.DEFAULT_CURRENCY).append("\n");
                 }
             }
         }
@@ -183,7 +210,7 @@ public class MainActivity extends AppCompatActivity {
         builder.setPositiveButton("END CYCLE", (dialog, which) -> {
             String description = etDescription.getText().toString().trim();
             if (description.isEmpty()) {
-                description = "Cycle ended on " + new java.text.SimpleDateFormat("MMM dd, yyyy").format(new Date());
+                description = "Cycle ended on " + Formatters.formatDate(new Date());
             }
 
             // Reset cycle
@@ -200,7 +227,7 @@ public class MainActivity extends AppCompatActivity {
         dialog.show();
 
         // Disable END button if no expenses
-        if (dataStore.getExpenses().isEmpty()) {
+        if (dataStore.getExpenseCount() == 0) {
             dialog.getButton(AlertDialog.BUTTON_POSITIVE).setEnabled(false);
         }
     }
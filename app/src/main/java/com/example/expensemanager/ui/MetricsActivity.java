@@ -0,0 +1,68 @@
+package com.example.expensemanager.ui;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.view.MenuItem;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.expensemanager.R;
+import com.example.expensemanager.utils.Metrics;
+
+/**
+ * Hidden screen (long-press the main toolbar) showing the storage and calculation metrics
+ * gathered since launch, with JSON export for attaching to bug reports.
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    private TextView tvMetrics;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+
+        setSupportActionBar(findViewById(R.id.toolbar));
+
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+            getSupportActionBar().setHomeButtonEnabled(true);
+        }
+
+        tvMetrics = findViewById(R.id.tvMetrics);
+
+        findViewById(R.id.btnExport).setOnClickListener(v -> exportJson());
+        findViewById(R.id.btnReset).setOnClickListener(v -> {
+            Metrics.resetAll();
+            refresh();
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        refresh();
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == android.R.id.home) {
+            finish();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    private void refresh() {
+        tvMetrics.setText(Metrics.describeAll());
+    }
+
+    private void exportJson() {
+        Intent send = new Intent(Intent.ACTION_SEND);
+        send.setType("application/json");
+        send.putExtra(Intent.EXTRA_SUBJECT, "ExpenseManager metrics");
+        send.putExtra(Intent.EXTRA_TEXT, Metrics.toJson());
+        startActivity(Intent.createChooser(send, "Export metrics"));
+    }
+}
@@ -11,18 +11,20 @@ import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.expensemanager.R;
 import com.example.expensemanager.model.Settlement;
 import com.example.expensemanager.model.SettlementItem;
 import com.example.expensemanager.utils.DataStore;
+import com.example.expensemanager.utils.Formatters;
 
-import java.text.NumberFormat;
-import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
+import java.util.Objects;
 
 public class SettlementHistoryActivity extends AppCompatActivity {
 
@@ -30,6 +32,15 @@ public class SettlementHistoryActivity extends AppCompatActivity {
     private SettlementAdapter adapter;
     private TextView tvEmpty;
 
+    // The list is only reloaded after a change that touches settlements
+    private boolean stale = true;
+    private long shownVersion;
+    private final DataStore.ChangeListener changeListener = change -> {
+        if (change.affectsSettlements() && change.getVersion() > shownVersion) {
+            stale = true;
+        }
+    };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -49,8 +60,13 @@ public class SettlementHistoryActivity extends AppCompatActivity {
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         adapter = new SettlementAdapter();
         recyclerView.setAdapter(adapter);
+        DataStore.getInstance().addChangeListener(changeListener);
+    }
 
-        updateUI();
+    @Override
+    protected void onDestroy() {
+        DataStore.getInstance().removeChangeListener(changeListener);
+        super.onDestroy();
     }
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
@@ -63,12 +79,22 @@ public class SettlementHistoryActivity extends AppCompatActivity {
     @Override
     protected void onResume() {
         super.onResume();
+        // Settlement history is loaded on first use, off the main thread
+        DataStore.getInstance().whenHistoryReady(() -> {
+            if (isDestroyed() || !stale) return;
+            refresh();
+        });
+    }
+
+    private void refresh() {
+        shownVersion = DataStore.getInstance().getVersion();
+        stale = false;
         adapter.refreshData();
         updateUI();
     }
 
     private void updateUI() {
-        List<Settlement> settlements = DataStore.getInstance().getSettlements();
+        List<Settlement> settlements = adapter.settlements;
         if (settlements.isEmpty()) {
             tvEmpty.setVisibility(View.VISIBLE);
             recyclerView.setVisibility(View.GONE);
@@ -92,13 +118,9 @@ public class SettlementHistoryActivity extends AppCompatActivity {
         TextView tvCount = dialogView.findViewById(R.id.tvCount);
         TextView tvDescription = dialogView.findViewById(R.id.tvDescription);
 
-        // Format details
-        NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
-        SimpleDateFormat dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-
         // Set basic info
-        tvDate.setText(dateFormat.format(settlement.getDate()));
-        tvTotal.setText(currencyFormat.format(settlement.getTotalAmount()));
+        tvDate.setText(Formatters.formatDate(settlement.getDate()));
+        tvTotal.setText(Formatters.formatMoney(settlement.getTotalAmountCents(), settlement.getCurrency()));
         tvCount.setText(settlement.getSettlements().size() + " transaction(s)");
         tvDescription.setText(settlement.getDescription());
 
@@ -116,8 +138,8 @@ public class SettlementHistoryActivity extends AppCompatActivity {
                         .append(item.getFrom().getName())
                         .append(" → ")
                         .append(item.getTo().getName())
-                        .append(": ")
-                        .append(currencyFormat.format(item.getAmount()));
+                        .append(": ");
+                Formatters.appendMoney(details, item.getAmountCents(), settlement.getCurrency());
 
                 if (item.isSettled()) {
                     details.append(" ✓");
@@ -143,16 +165,14 @@ public class SettlementHistoryActivity extends AppCompatActivity {
         new AlertDialog.Builder(this)
                 .setTitle("Delete Settlement")
                 .setMessage("Are you sure you want to delete this settlement record?\n\n" +
-                        "Date: " + new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault()).format(settlement.getDate()) + "\n" +
+                        "Date: " + Formatters.formatDate(settlement.getDate()) + "\n" +
                         "Description: " + settlement.getDescription())
                 .setPositiveButton("DELETE", (dialog, which) -> {
                     // Remove from DataStore
                     boolean removed = DataStore.getInstance().removeSettlement(settlement.getId());
                     if (removed) {
                         // Refresh the adapter data
-                        adapter.refreshData();
-                        updateUI();
-                        adapter.notifyDataSetChanged();
+                        refresh();
                         Toast.makeText(SettlementHistoryActivity.this,
                                 "Settlement deleted", Toast.LENGTH_SHORT).show();
                     } else {
@@ -164,20 +184,43 @@ public class SettlementHistoryActivity extends AppCompatActivity {
                 .show();
     }
 
-    private class SettlementAdapter extends RecyclerView.Adapter<SettlementAdapter.SettlementViewHolder> {
+    // Settlements are never edited after they are recorded, so the rows can be diffed
+    // on the settlements themselves
+    private static final DiffUtil.ItemCallback<Settlement> SETTLEMENT_DIFF = new DiffUtil.ItemCallback<Settlement>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Settlement oldItem, @NonNull Settlement newItem) {
+            return oldItem.getId().equals(newItem.getId());
+        }
 
+        @Override
+        public boolean areContentsTheSame(@NonNull Settlement oldItem, @NonNull Settlement newItem) {
+            return oldItem.getTotalAmountCents() == newItem.getTotalAmountCents()
+                    && oldItem.getSettlements().size() == newItem.getSettlements().size()
+                    && Objects.equals(oldItem.getDate(), newItem.getDate())
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription());
+        }
+    };
+
+    private class SettlementAdapter extends ListAdapter<Settlement, SettlementAdapter.SettlementViewHolder> {
+
+        // What was last submitted; getCurrentList() only catches up once the diff is done
         private List<Settlement> settlements;
-        private SimpleDateFormat dateFormat;
-        private NumberFormat currencyFormat;
+        private final StableIds stableIds = new StableIds();
 
         public SettlementAdapter() {
-            refreshData();
-            this.dateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-            this.currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
+            super(SETTLEMENT_DIFF);
+            setHasStableIds(true);
+            this.settlements = new ArrayList<>();
         }
 
         public void refreshData() {
             this.settlements = DataStore.getInstance().getSettlements();
+            submitList(settlements);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return stableIds.of(getItem(position).getId());
         }
 
         @NonNull
@@ -190,7 +233,7 @@ public class SettlementHistoryActivity extends AppCompatActivity {
 
         @Override
         public void onBindViewHolder(@NonNull SettlementViewHolder holder, int position) {
-            Settlement settlement = settlements.get(position);
+            Settlement settlement = getItem(position);
             holder.bind(settlement);
 
             // Click listener for the whole item
@@ -205,11 +248,6 @@ public class SettlementHistoryActivity extends AppCompatActivity {
             });
         }
 
-        @Override
-        public int getItemCount() {
-            return settlements.size();
-        }
-
         class SettlementViewHolder extends RecyclerView.ViewHolder {
             TextView tvDate, tvDescription, tvAmount, tvCount;
 
@@ -222,9 +260,9 @@ public class SettlementHistoryActivity extends AppCompatActivity {
             }
 
             public void bind(Settlement settlement) {
-                tvDate.setText(dateFormat.format(settlement.getDate()));
+                tvDate.setText(Formatters.formatDate(settlement.getDate()));
                 tvDescription.setText(settlement.getDescription());
-                tvAmount.setText(currencyFormat.format(settlement.getTotalAmount()));
+                tvAmount.setText(Formatters.formatMoney(settlement.getTotalAmountCents(), settlement.getCurrency()));
 
                 int transactionCount = settlement.getSettlements().size();
                 String countText = transactionCount + " transaction" + (transactionCount != 1 ? "s" : "");
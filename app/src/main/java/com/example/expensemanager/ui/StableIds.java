@@ -0,0 +1,20 @@
+package com.example.expensemanager.ui;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Hands out the long ids RecyclerView needs for stable ids. Ids are assigned in the order
+// string ids are first seen, so unlike hash codes two items can never share one.
+final class StableIds {
+    private final Map<String, Long> ids = new HashMap<>();
+    private long next;
+
+    long of(String id) {
+        Long stable = ids.get(id);
+        if (stable == null) {
+            stable = next++;
+            ids.put(id, stable);
+        }
+        return stable;
+    }
+}
@@ -2,34 +2,114 @@ package com.example.expensemanager.utils;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
 import com.example.expensemanager.model.Expense;
 import com.example.expensemanager.model.Person;
 import com.example.expensemanager.model.Settlement;
 import com.example.expensemanager.model.SettlementItem;
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
-import java.lang.reflect.Type;
 import java.util.*;
-
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory state of the app, persisted through a StorageEngine.
+ *
+ * Writers are serialized: every mutation, or every runInTransaction() batch, holds a
+ * fair write lock, so concurrent writers take turns in arrival order. Readers never
+ * take it. Lists are handed out as immutable copies republished when a unit of work
+ * ends, lookups go through concurrent maps, and the ledger and indexes lock internally,
+ * so any thread may read while another writes.
+ *
+ * Every change is numbered and published to change listeners on the main thread once
+ * its unit of work has ended, so screens can skip work when getVersion() has not moved.
+ *
+ * Archived expenses are not held in memory. Each reset cycle leaves an immutable archive
+ * segment under its settlement's id; segments are read on demand and kept in a small
+ * LRU cache, so startup time and memory do not grow with the number of past cycles.
+ */
 public class DataStore {
+    private static final String TAG = "DataStore";
+
     private static DataStore instance;
     private List<Person> peopleList;
-    private List<Expense> expenseList;
-    private List<Expense> archivedExpenses;
     private List<Settlement> settlements;
+    // Settlement ids of the archive segments, oldest first
+    private List<String> archiveSegments;
     private Map<String, Person> peopleMap;
+    private Map<String, Person> peopleByName;
+    private Map<String, Settlement> settlementMap;
+    private final CurrentExpenses expenses = new CurrentExpenses();
+    private final Ledger ledger = expenses.ledger();
+    private final ExpenseIndex expenseIndex = expenses.index();
+    private final AnalyticsCube analytics = new AnalyticsCube();
+    private final PersonRegistry registry = new PersonRegistry();
+    private final IdCounters counters = new IdCounters();
+    private final ArchiveCache archive = new ArchiveCache(MAX_CACHED_ARCHIVED_EXPENSES, this::readSegment);
+
+    // Segments whose expenses are in the analytics cube; changed only under writeLock
+    private final Set<String> segmentsInAnalytics = ConcurrentHashMap.newKeySet();
+    private volatile boolean archiveInAnalytics;
+
+    // Writers queue on this lock in arrival order; readers never take it
+    private final ReentrantLock writeLock = new ReentrantLock(true);
+
+    // What readers get: immutable copies of the lists above, republished at the end of
+    // a unit of work that changed them
+    private volatile List<Person> peopleView = Collections.emptyList();
+    private volatile List<Expense> expenseView = Collections.emptyList();
+    private volatile List<String> segmentView = Collections.emptyList();
+    private volatile List<Settlement> settlementView = Collections.emptyList();
+    private boolean peopleChanged;
+    private boolean expensesChanged;
+    private boolean historyChanged;
+
+    // Change feed; versions are handed out under writeLock and published with the lists
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private final List<DataChange> pendingChanges = new ArrayList<>();
+    private long lastVersion;
+    private volatile long version;
+
+    // Receives every change, in order, on the main thread
+    public interface ChangeListener {
+        void onDataChanged(DataChange change);
+    }
 
     private Context context;
     private SharedPreferences preferences;
-    private Gson gson;
-
-    // Preference keys
+    private StorageEngine storage;
+
+    // Loading happens off the main thread; public methods wait for it if they have to
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(
+            r -> new Thread(r, "DataStore-loader"));
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final CountDownLatch readyLatch = new CountDownLatch(1);
+    private final List<Runnable> readyCallbacks = new ArrayList<>();
+    private volatile boolean ready;
+    // Why loading failed, if it did; the store is then empty and refuses changes
+    private volatile RuntimeException loadError;
+
+    // Settlements and the list of archive segments are only read on first use
+    private volatile boolean historyLoaded;
+
+    // Upper bound on archived expenses kept in memory across cached segments
+    private static final int MAX_CACHED_ARCHIVED_EXPENSES = 5000;
+
+    // Open units of work (guarded by writeLock); storage writes wait for the outermost one
+    private int unitDepth;
+    // Set when an operation of the open unit threw; the unit is then rolled back
+    private boolean unitFailed;
+    private boolean countersChanged;
+
+    // Preference keys; the id counters are only read to carry them over to the engine
     private static final String PREF_NAME = "ExpenseManagerData";
-    private static final String KEY_PEOPLE = "people_list";
-    private static final String KEY_EXPENSES = "expenses_list";
-    private static final String KEY_ARCHIVED_EXPENSES = "archived_expenses";
-    private static final String KEY_SETTLEMENTS = "settlements";
     private static final String KEY_LAST_PERSON_ID = "last_person_id";
     private static final String KEY_LAST_EXPENSE_ID = "last_expense_id";
     private static final String KEY_LAST_SETTLEMENT_ID = "last_settlement_id";
@@ -37,20 +117,18 @@ public class DataStore {
     private DataStore(Context context) {
         this.context = context.getApplicationContext();
         this.preferences = this.context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        this.gson = new Gson();
+        this.storage = new JournalStorageEngine(this.context, preferences);
 
-        loadAllData();
+        loader.execute(this::loadAllData);
     }
 
-    public static synchronized DataStore getInstance(Context context) {
-        if (instance == null) {
-            instance = new DataStore(context);
-        }
-        return instance;
+    public static DataStore getInstance(Context context) {
+        initialize(context);
+        return getInstance();
     }
 
     // Initialize with Application context in your Application class
-    public static void initialize(Context context) {
+    public static synchronized void initialize(Context context) {
         if (instance == null) {
             instance = new DataStore(context);
         }
@@ -64,315 +142,785 @@ public class DataStore {
         return instance;
     }
 
-    // Load all data from SharedPreferences
+    // True once people and current expenses are in memory
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Runs the callback on the main thread once loading has finished (immediately if it has)
+    public void whenReady(Runnable callback) {
+        synchronized (readyCallbacks) {
+            if (!ready) {
+                readyCallbacks.add(callback);
+                return;
+            }
+        }
+        callback.run();
+    }
+
+    // Loads history in the background if needed, then runs the callback on the main thread
+    public void whenHistoryReady(Runnable callback) {
+        if (historyLoaded) {
+            callback.run();
+            return;
+        }
+        loader.execute(() -> {
+            ensureHistoryLoaded();
+            mainHandler.post(callback);
+        });
+    }
+
+    // Set once ready if loading failed. The store then holds no data and every change
+    // throws, so nothing can be written over what is still on disk.
+    public RuntimeException getLoadError() {
+        return loadError;
+    }
+
+    // Load people and current expenses from the storage engine (runs on the loader thread)
     private void loadAllData() {
-        loadPeople();
-        loadExpenses();
-        loadArchivedExpenses();
-        loadSettlements();
-        rebuildPeopleMap();
+        long start = Metrics.STORE_LOAD.start();
+        try {
+            applySnapshot(storage.load());
+            migrateCounters();
+            Metrics.STORE_LOAD.stop(start, peopleList.size() + expenses.list().size());
+        } catch (RuntimeException e) {
+            // Screens get empty lists rather than nulls, and can check getLoadError()
+            Log.e(TAG, "Failed to load data", e);
+            loadError = e;
+            applySnapshot(new StoreSnapshot());
+        } finally {
+            List<Runnable> callbacks;
+            synchronized (readyCallbacks) {
+                ready = true;
+                callbacks = new ArrayList<>(readyCallbacks);
+                readyCallbacks.clear();
+            }
+            readyLatch.countDown();
+            for (Runnable callback : callbacks) {
+                mainHandler.post(callback);
+            }
+        }
     }
 
-    // Save all data to SharedPreferences
-    private void saveAllData() {
-        savePeople();
-        saveExpenses();
-        saveArchivedExpenses();
-        saveSettlements();
+    private void applySnapshot(StoreSnapshot snapshot) {
+        peopleList = snapshot.getPeople();
+        settlements = snapshot.getSettlements();
+        archiveSegments = snapshot.getArchiveSegments();
+        counters.reset();
+        counters.raiseTo(snapshot.getCounters());
+        registry.clear();
+        registry.link(snapshot);
+        rebuildPeopleMap();
+        rebuildLookupMaps();
+        rebuildLedger(snapshot.getExpenses());
+        peopleChanged = true;
+        expensesChanged = true;
+        publish();
+    }
+
+    private void awaitReady() {
+        if (ready) return;
+        boolean interrupted = false;
+        while (true) {
+            try {
+                readyLatch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    // People data methods
-    private void loadPeople() {
-        String json = preferences.getString(KEY_PEOPLE, "[]");
-        Type type = new TypeToken<List<Person>>(){}.getType();
-        peopleList = gson.fromJson(json, type);
-        if (peopleList == null) {
-            peopleList = new ArrayList<>();
+    private void ensureHistoryLoaded() {
+        awaitReady();
+        if (historyLoaded) return;
+        writeLock.lock();
+        try {
+            if (historyLoaded) return;
+            long start = Metrics.STORE_LOAD_HISTORY.start();
+            StoreSnapshot history = new StoreSnapshot(peopleList, expenses.list(), new ArrayList<>(), settlements);
+            if (loadError == null) {
+                storage.loadHistory(history);
+            }
+            archiveSegments.addAll(history.getArchiveSegments());
+            registry.internSettlements(settlements);
+            for (Settlement settlement : settlements) {
+                settlementMap.put(settlement.getId(), settlement);
+            }
+            historyChanged = true;
+            publish();
+            historyLoaded = true;
+            Metrics.STORE_LOAD_HISTORY.stop(start, archiveSegments.size() + settlements.size());
+        } finally {
+            writeLock.unlock();
         }
     }
 
-    private void savePeople() {
-        String json = gson.toJson(peopleList);
-        preferences.edit().putString(KEY_PEOPLE, json).apply();
+    // Cache misses land here, on whichever thread asked
+    private List<Expense> readSegment(String settlementId) {
+        long start = Metrics.STORE_LOAD_SEGMENT.start();
+        List<Expense> segment = storage.loadArchiveSegment(settlementId);
+        registry.internExpenses(segment);
+        Metrics.STORE_LOAD_SEGMENT.stop(start, segment.size());
+        return segment;
     }
 
-    // Expense data methods
-    private void loadExpenses() {
-        String json = preferences.getString(KEY_EXPENSES, "[]");
-        Type type = new TypeToken<List<Expense>>(){}.getType();
-        expenseList = gson.fromJson(json, type);
-        if (expenseList == null) {
-            expenseList = new ArrayList<>();
+    // Hands readers fresh copies of whatever the finished unit changed
+    private void publish() {
+        if (peopleChanged) {
+            peopleView = Collections.unmodifiableList(new ArrayList<>(peopleList));
+            peopleChanged = false;
+        }
+        if (expensesChanged) {
+            expenseView = Collections.unmodifiableList(new ArrayList<>(expenses.list()));
+            expensesChanged = false;
+        }
+        if (historyChanged) {
+            segmentView = Collections.unmodifiableList(new ArrayList<>(archiveSegments));
+            settlementView = Collections.unmodifiableList(new ArrayList<>(settlements));
+            historyChanged = false;
         }
     }
 
-    private void saveExpenses() {
-        String json = gson.toJson(expenseList);
-        preferences.edit().putString(KEY_EXPENSES, json).apply();
+    // Id counters used to be bumped in SharedPreferences with one apply() per new id
+    private void migrateCounters() {
+        if (!preferences.contains(KEY_LAST_PERSON_ID) && !preferences.contains(KEY_LAST_EXPENSE_ID)
+                && !preferences.contains(KEY_LAST_SETTLEMENT_ID)) {
+            return;
+        }
+        counters.raiseTo(new IdCounters(preferences.getInt(KEY_LAST_PERSON_ID, 0),
+                preferences.getInt(KEY_LAST_EXPENSE_ID, 0),
+                preferences.getInt(KEY_LAST_SETTLEMENT_ID, 0)));
+        storage.saveCounters(counters);
+        preferences.edit()
+                .remove(KEY_LAST_PERSON_ID)
+                .remove(KEY_LAST_EXPENSE_ID)
+                .remove(KEY_LAST_SETTLEMENT_ID)
+                .apply();
     }
 
-    // Archived expenses methods
-    private void loadArchivedExpenses() {
-        String json = preferences.getString(KEY_ARCHIVED_EXPENSES, "[]");
-        Type type = new TypeToken<List<Expense>>(){}.getType();
-        archivedExpenses = gson.fromJson(json, type);
-        if (archivedExpenses == null) {
-            archivedExpenses = new ArrayList<>();
+    /**
+     * Runs several operations as one unit of work: their storage writes, id counters
+     * included, reach disk in a single atomic commit when the operations return. After
+     * a crash either all of them are loaded or none is. If the operations throw, nothing
+     * is written and the store is reloaded from storage before the exception is rethrown;
+     * the same happens if one of them throws and the exception is caught inside.
+     */
+    public void runInTransaction(Runnable operations) {
+        awaitReady();
+        beginUnit();
+        try {
+            operations.run();
+        } catch (RuntimeException | Error e) {
+            abandonUnit();
+            throw e;
+        } finally {
+            endUnit();
         }
     }
 
-    private void saveArchivedExpenses() {
-        String json = gson.toJson(archivedExpenses);
-        preferences.edit().putString(KEY_ARCHIVED_EXPENSES, json).apply();
+    // Every mutation is a unit of its own unless it runs inside runInTransaction()
+    private void beginUnit() {
+        if (loadError != null) {
+            throw new IllegalStateException("Data failed to load", loadError);
+        }
+        writeLock.lock();
+        if (unitDepth++ > 0) {
+            return;
+        }
+        try {
+            storage.begin();
+        } catch (RuntimeException e) {
+            // No unit was opened, so nothing will call endUnit() to let go of the lock
+            unitDepth--;
+            writeLock.unlock();
+            throw e;
+        }
+    }
+
+    // Marks the open unit as failed part way; endUnit() then undoes it instead of committing
+    private void abandonUnit() {
+        unitFailed = true;
     }
 
-    // Settlements methods
-    private void loadSettlements() {
-        String json = preferences.getString(KEY_SETTLEMENTS, "[]");
-        Type type = new TypeToken<List<Settlement>>(){}.getType();
-        settlements = gson.fromJson(json, type);
-        if (settlements == null) {
-            settlements = new ArrayList<>();
+    private void endUnit() {
+        try {
+            if (--unitDepth > 0) {
+                return;
+            }
+            if (unitFailed) {
+                // Whatever the unit did get to report is dropped, and memory goes back
+                // to what is on disk
+                unitFailed = false;
+                countersChanged = false;
+                storage.rollback();
+                reloadAfterFailedCommit();
+                return;
+            }
+            long start = Metrics.STORE_PERSIST.start();
+            if (countersChanged) {
+                storage.saveCounters(counters);
+                countersChanged = false;
+            }
+            try {
+                storage.commit();
+            } catch (RuntimeException e) {
+                reloadAfterFailedCommit();
+                throw e;
+            }
+            compactIfNeeded();
+            Metrics.STORE_PERSIST.stop(start);
+            publish();
+            publishChanges();
+        } finally {
+            writeLock.unlock();
         }
     }
 
-    private void saveSettlements() {
-        String json = gson.toJson(settlements);
-        preferences.edit().putString(KEY_SETTLEMENTS, json).apply();
+    // Memory already holds the unit that never reached disk, so put it back to what did.
+    // History is read again on next use.
+    private void reloadAfterFailedCommit() {
+        Log.w(TAG, "Unit of work failed; reloading from storage");
+        pendingChanges.clear();
+        archive.clear();
+        segmentsInAnalytics.clear();
+        archiveInAnalytics = false;
+        historyLoaded = false;
+        historyChanged = true;
+        try {
+            applySnapshot(storage.load());
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Failed to reload data", e);
+            loadError = e;
+            applySnapshot(new StoreSnapshot());
+        }
+        recordChange(DataChange.Type.RELOADED, null);
+        publishChanges();
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    // Version of the last change whose unit of work has ended; 0 until something changes
+    public long getVersion() {
+        return version;
+    }
+
+    private void recordChange(DataChange.Type type, String id) {
+        pendingChanges.add(new DataChange(type, ++lastVersion, id));
+    }
+
+    // Called after publish(), so a reader that sees the new version also sees the new lists
+    private void publishChanges() {
+        if (pendingChanges.isEmpty()) return;
+        List<DataChange> changes = new ArrayList<>(pendingChanges);
+        pendingChanges.clear();
+        version = lastVersion;
+        mainHandler.post(() -> {
+            for (DataChange change : changes) {
+                for (ChangeListener listener : changeListeners) {
+                    listener.onDataChanged(change);
+                }
+            }
+        });
+    }
+
+    // Let the engine fold its journal into a snapshot once it has grown large enough
+    private void compactIfNeeded() {
+        if (storage.needsCompaction()) {
+            ensureHistoryLoaded();
+            StoreSnapshot snapshot = new StoreSnapshot(peopleList, expenses.list(), new ArrayList<>(), settlements);
+            snapshot.getArchiveSegments().addAll(archiveSegments);
+            // Not derived from the snapshot: the archive it would have to scan is on disk
+            snapshot.getFormerPeople().addAll(registry.formerPeople(peopleList));
+            snapshot.getCounters().raiseTo(counters);
+            storage.compact(snapshot);
+        }
     }
 
     // Rebuild people map after loading
     private void rebuildPeopleMap() {
-        peopleMap = new HashMap<>();
+        peopleMap = new ConcurrentHashMap<>();
+        peopleByName = new ConcurrentHashMap<>();
         for (Person person : peopleList) {
             peopleMap.put(person.getId(), person);
+            peopleByName.putIfAbsent(nameKey(person.getName()), person);
+        }
+    }
+
+    // ID lookups so removals don't have to scan the lists
+    private void rebuildLookupMaps() {
+        settlementMap = new ConcurrentHashMap<>();
+    }
+
+    // Totals and the per-person index are derived from the expenses, never trusted from storage
+    private void rebuildLedger(List<Expense> loaded) {
+        expenses.clear();
+        expenses.addAll(loaded);
+        analytics.clear();
+        analytics.addAll(loaded);
+        for (Person person : peopleList) {
+            syncTotalPaid(person);
         }
     }
 
-    // Generate unique IDs
+    // Keep the Person's displayed total in step with the exact ledger value
+    private void syncTotalPaid(Person person) {
+        person.setTotalPaidCents(ledger.getPaidCents(person.getId()));
+    }
+
+    private static String nameKey(String name) {
+        return name != null ? name.toLowerCase(Locale.ROOT) : "";
+    }
+
+    // Generate unique IDs; the counters are stored when the current unit ends
     private String generatePersonId() {
-        int lastId = preferences.getInt(KEY_LAST_PERSON_ID, 0);
-        lastId++;
-        preferences.edit().putInt(KEY_LAST_PERSON_ID, lastId).apply();
-        return "P" + lastId;
+        countersChanged = true;
+        return counters.nextPersonId();
     }
 
     private String generateExpenseId() {
-        int lastId = preferences.getInt(KEY_LAST_EXPENSE_ID, 0);
-        lastId++;
-        preferences.edit().putInt(KEY_LAST_EXPENSE_ID, lastId).apply();
-        return "E" + lastId;
+        countersChanged = true;
+        return counters.nextExpenseId();
     }
 
     private String generateSettlementId() {
-        int lastId = preferences.getInt(KEY_LAST_SETTLEMENT_ID, 0);
-        lastId++;
-        preferences.edit().putInt(KEY_LAST_SETTLEMENT_ID, lastId).apply();
-        return "S" + lastId;
+        countersChanged = true;
+        return counters.nextSettlementId();
     }
 
     // People operations (updated with persistence)
     public void addPerson(Person person) {
-        if (!peopleMap.containsKey(person.getId())) {
-            if (person.getId() == null || person.getId().isEmpty()) {
-                person.setId(generatePersonId());
+        awaitReady();
+        beginUnit();
+        try {
+            if (person.getId() == null || !peopleMap.containsKey(person.getId())) {
+                if (person.getId() == null || person.getId().isEmpty()) {
+                    person.setId(generatePersonId());
+                }
+                registry.register(person);
+                peopleList.add(person);
+                peopleChanged = true;
+                peopleMap.put(person.getId(), person);
+                peopleByName.putIfAbsent(nameKey(person.getName()), person);
+                storage.savePerson(person);
+                recordChange(DataChange.Type.PERSON_ADDED, person.getId());
             }
-            peopleList.add(person);
-            peopleMap.put(person.getId(), person);
-            savePeople();
+        } catch (RuntimeException | Error e) {
+            abandonUnit();
+            throw e;
+        } finally {
+            endUnit();
+        }
+    }
+
+    // Persist changes made to a person's name or color
+    public void updatePerson(Person person) {
+        awaitReady();
+        beginUnit();
+        try {
+            if (person.getId() != null && peopleMap.get(person.getId()) == person) {
+                // The name may have changed in place, so drop whatever key pointed at this person
+                peopleByName.values().remove(person);
+                peopleByName.putIfAbsent(nameKey(person.getName()), person);
+                storage.savePerson(person);
+                recordChange(DataChange.Type.PERSON_UPDATED, person.getId());
+            }
+        } catch (RuntimeException | Error e) {
+            abandonUnit();
+            throw e;
+        } finally {
+            endUnit();
         }
     }
 
     public boolean removePerson(String personId) {
-        Person person = peopleMap.remove(personId);
-        if (person != null) {
-            // Remove person from expenses
-            List<Expense> toRemove = new ArrayList<>();
-            for (Expense expense : expenseList) {
-                if (expense.getPaidBy().getId().equals(personId)) {
-                    toRemove.add(expense);
+        awaitReady();
+        beginUnit();
+        try {
+            Person person = personId != null ? peopleMap.remove(personId) : null;
+            if (person != null) {
+                peopleByName.remove(nameKey(person.getName()), person);
+
+                // Remove person from expenses
+                List<Expense> toRemove = expenses.removePaidBy(personId);
+                expensesChanged |= !toRemove.isEmpty();
+                for (Expense expense : toRemove) {
+                    analytics.remove(expense);
                 }
-            }
-            expenseList.removeAll(toRemove);
 
-            boolean removed = peopleList.remove(person);
-            if (removed) {
-                savePeople();
-                saveExpenses();
+                boolean removed = peopleList.remove(person);
+                peopleChanged |= removed;
+                if (removed) {
+                    // The engine drops their expenses with them, but listeners hear of each
+                    storage.deletePerson(personId);
+                    for (Expense expense : toRemove) {
+                        recordChange(DataChange.Type.EXPENSE_REMOVED, expense.getId());
+                    }
+                    recordChange(DataChange.Type.PERSON_REMOVED, personId);
+                }
+                return removed;
             }
-            return removed;
+            return false;
+        } catch (RuntimeException | Error e) {
+            abandonUnit();
+            throw e;
+        } finally {
+            endUnit();
         }
-        return false;
     }
 
     public Person getPersonById(String id) {
-        return peopleMap.get(id);
+        awaitReady();
+        // Concurrent maps reject null keys
+        return id != null ? peopleMap.get(id) : null;
     }
 
     public Person getPersonByName(String name) {
-        for (Person person : peopleList) {
-            if (person.getName().equalsIgnoreCase(name)) {
-                return person;
-            }
-        }
-        return null;
+        awaitReady();
+        return peopleByName.get(nameKey(name));
     }
 
     public List<Person> getPeople() {
-        return new ArrayList<>(peopleList);
+        awaitReady();
+        return peopleView;
     }
 
     // Expense operations (updated with persistence)
     public void addExpense(Expense expense) {
-        if (expense.getId() == null || expense.getId().isEmpty()) {
-            expense.setId(generateExpenseId());
+        awaitReady();
+        beginUnit();
+        try {
+            if (expense.getId() == null || expense.getId().isEmpty()) {
+                expense.setId(generateExpenseId());
+            }
+            expense.setPaidBy(registry.intern(expense.getPaidBy()));
+            expenses.add(expense);
+            expensesChanged = true;
+            analytics.add(expense);
+            syncTotalPaid(expense.getPaidBy());
+            storage.saveExpense(expense);
+            recordChange(DataChange.Type.EXPENSE_ADDED, expense.getId());
+        } catch (RuntimeException | Error e) {
+            abandonUnit();
+            throw e;
+        } finally {
+            endUnit();
         }
-        expenseList.add(expense);
-        expense.getPaidBy().addPayment(expense.getAmount());
-        saveExpenses();
-        savePeople(); // Update person's total paid
     }
 
     public boolean removeExpense(String expenseId) {
-        for (Expense expense : expenseList) {
-            if (expense.getId().equals(expenseId)) {
-                // Subtract amount from person's total paid
-                Person payer = expense.getPaidBy();
-                payer.addPayment(-expense.getAmount());
-                boolean removed = expenseList.remove(expense);
-                if (removed) {
-                    saveExpenses();
-                    savePeople();
-                }
-                return removed;
+        awaitReady();
+        beginUnit();
+        try {
+            Expense expense = expenses.remove(expenseId);
+            if (expense == null) {
+                return false;
             }
+            // Subtract amount from person's total paid
+            analytics.remove(expense);
+            syncTotalPaid(expense.getPaidBy());
+            expensesChanged = true;
+            storage.deleteExpense(expenseId);
+            recordChange(DataChange.Type.EXPENSE_REMOVED, expenseId);
+            return true;
+        } catch (RuntimeException | Error e) {
+            abandonUnit();
+            throw e;
+        } finally {
+            endUnit();
         }
-        return false;
     }
 
     public List<Expense> getExpenses() {
-        return new ArrayList<>(expenseList);
+        awaitReady();
+        return expenseView;
     }
 
     public List<Expense> getExpensesByPerson(String personId) {
-        List<Expense> result = new ArrayList<>();
-        for (Expense expense : expenseList) {
-            if (expense.getPaidBy().getId().equals(personId)) {
-                result.add(expense);
-            }
-        }
-        return result;
+        awaitReady();
+        return expenseIndex.get(personId);
+    }
+
+    // How many current expenses the person paid, without copying them
+    public int getExpenseCountByPerson(String personId) {
+        awaitReady();
+        return expenseIndex.count(personId);
+    }
+
+    public int getExpenseCount() {
+        awaitReady();
+        return expenseIndex.size();
+    }
+
+    // A page of current expenses matching the query, newest first. Pass the previous
+    // page's next cursor to continue, or null to start. The limit must be positive. Safe
+    // to call off the main thread.
+    public ExpensePage getExpensePage(ExpenseQuery query, ExpenseCursor after, int limit) {
+        awaitReady();
+        return expenseIndex.page(query, after, limit);
     }
 
     // Clear all data
     public void clearAll() {
-        peopleList.clear();
-        expenseList.clear();
-        peopleMap.clear();
-        archivedExpenses.clear();
-        settlements.clear();
-
-        preferences.edit()
-                .remove(KEY_PEOPLE)
-                .remove(KEY_EXPENSES)
-                .remove(KEY_ARCHIVED_EXPENSES)
-                .remove(KEY_SETTLEMENTS)
-                .remove(KEY_LAST_PERSON_ID)
-                .remove(KEY_LAST_EXPENSE_ID)
-                .remove(KEY_LAST_SETTLEMENT_ID)
-                .apply();
+        ensureHistoryLoaded();
+        beginUnit();
+        try {
+            peopleList.clear();
+            expenses.clear();
+            peopleMap.clear();
+            peopleByName.clear();
+            settlementMap.clear();
+            settlements.clear();
+            archiveSegments.clear();
+            archive.clear();
+            segmentsInAnalytics.clear();
+            analytics.clear();
+            registry.clear();
+            peopleChanged = true;
+            expensesChanged = true;
+            historyChanged = true;
+
+            counters.reset();
+            countersChanged = false;
+
+            storage.clear();
+            recordChange(DataChange.Type.CLEARED, null);
+        } catch (RuntimeException | Error e) {
+            abandonUnit();
+            throw e;
+        } finally {
+            endUnit();
+        }
     }
 
     // Calculate total expenses
-    public double getTotalExpenses() {
-        double total = 0;
-        for (Expense expense : expenseList) {
-            total += expense.getAmount();
+    public long getTotalExpensesCents() {
+        awaitReady();
+        return ledger.getTotalCents();
+    }
+
+    // Current-cycle totals per category, in cents
+    public Map<String, Long> getCategoryTotals() {
+        awaitReady();
+        return ledger.getCategoryTotals();
+    }
+
+    // Everyone who paid a current expense (keyed by person id), with counts and sums
+    public List<Facet> getPayerFacets() {
+        awaitReady();
+        return ledger.getPayerFacets();
+    }
+
+    // Every category used by a current expense, with counts and sums
+    public List<Facet> getCategoryFacets() {
+        awaitReady();
+        return ledger.getCategoryFacets();
+    }
+
+    // Spending rollups over current and archived expenses. The first call reads every
+    // archive segment, so call it off the main thread. A segment that can't be read is
+    // left out, and tried again by the next call.
+    public AnalyticsCube getAnalytics() {
+        ensureHistoryLoaded();
+        if (archiveInAnalytics) {
+            return analytics;
+        }
+        // Segments are read without the lock, so writers and readers aren't held up by
+        // the disk; only merging into the cube is serialized
+        for (String settlementId : segmentView) {
+            if (segmentsInAnalytics.contains(settlementId)) {
+                continue;
+            }
+            List<Expense> segment;
+            try {
+                // Read past the cache: one full scan should not evict the cycles being browsed
+                segment = readSegment(settlementId);
+            } catch (StorageException e) {
+                Log.e(TAG, "Leaving archive segment " + settlementId + " out of analytics", e);
+                continue;
+            }
+            writeLock.lock();
+            try {
+                // Skip it if another caller merged it meanwhile, or the archive was cleared
+                if (archiveSegments.contains(settlementId) && segmentsInAnalytics.add(settlementId)) {
+                    analytics.addAll(segment);
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        writeLock.lock();
+        try {
+            archiveInAnalytics = segmentsInAnalytics.containsAll(archiveSegments);
+        } finally {
+            writeLock.unlock();
         }
-        return total;
+        return analytics;
+    }
+
+    // Every person's balance against an equal share, answered from the running totals
+    public Balances getBalances() {
+        awaitReady();
+        return ledger.getBalances(peopleView);
     }
 
     // Settlement methods (updated with persistence)
     public void addSettlement(Settlement settlement) {
-        if (settlement.getId() == null || settlement.getId().isEmpty()) {
-            settlement.setId(generateSettlementId());
+        ensureHistoryLoaded();
+        beginUnit();
+        try {
+            if (settlement.getId() == null || settlement.getId().isEmpty()) {
+                settlement.setId(generateSettlementId());
+            }
+            registry.internSettlements(Collections.singletonList(settlement));
+            settlements.add(settlement);
+            settlementMap.put(settlement.getId(), settlement);
+            historyChanged = true;
+            storage.saveSettlement(settlement);
+            recordChange(DataChange.Type.SETTLEMENT_ADDED, settlement.getId());
+        } catch (RuntimeException | Error e) {
+            abandonUnit();
+            throw e;
+        } finally {
+            endUnit();
         }
-        settlements.add(settlement);
-        saveSettlements();
     }
 
     public List<Settlement> getSettlements() {
-        return new ArrayList<>(settlements);
+        ensureHistoryLoaded();
+        return settlementView;
+    }
+
+    // Settlement ids of the cycles that archived expenses, oldest first. Expenses archived
+    // before cycles were stored apart come first, under StorageEngine.LEGACY_SEGMENT.
+    public List<String> getArchiveSegments() {
+        ensureHistoryLoaded();
+        return segmentView;
     }
 
+    // The expenses one cycle archived, read from disk unless the segment is cached.
+    // Empty if the cycle archived nothing; throws StorageException if the segment can't
+    // be read. Safe to call off the main thread.
+    public List<Expense> getArchivedExpenses(String settlementId) {
+        ensureHistoryLoaded();
+        if (settlementId == null || !segmentView.contains(settlementId)) {
+            return Collections.emptyList();
+        }
+        return archive.get(settlementId);
+    }
+
+    // Every archived expense, oldest cycle first. Reads each segment in turn, so prefer
+    // getArchivedExpenses(settlementId) where one cycle will do.
     public List<Expense> getArchivedExpenses() {
-        return new ArrayList<>(archivedExpenses);
+        ensureHistoryLoaded();
+        List<Expense> archived = new ArrayList<>();
+        for (String settlementId : segmentView) {
+            archived.addAll(archive.get(settlementId));
+        }
+        return Collections.unmodifiableList(archived);
     }
 
     // Reset cycle - archive current expenses and reset totals
     public Settlement resetCycle(String description) {
-        // Get current settlement suggestions
-        List<Calculator.Settlement> currentSettlements =
-                Calculator.getSettlementSuggestions(calculateCurrentBalances());
-
-        // Create settlement items
-        List<SettlementItem> settlementItems = new ArrayList<>();
-        for (Calculator.Settlement calcSettlement : currentSettlements) {
-            settlementItems.add(new SettlementItem(
-                    calcSettlement.getFrom(),
-                    calcSettlement.getTo(),
-                    calcSettlement.getAmount()
-            ));
-        }
+        ensureHistoryLoaded();
+        long start = Metrics.RESET_CYCLE.start();
+        int archived = 0;
+        beginUnit();
+        try {
+            // Get current settlement suggestions
+            List<Calculator.Settlement> currentSettlements =
+                    Calculator.getSettlementSuggestions(calculateCurrentBalances());
+
+            // Create settlement items
+            List<SettlementItem> settlementItems = new ArrayList<>();
+            for (Calculator.Settlement calcSettlement : currentSettlements) {
+                settlementItems.add(new SettlementItem(
+                        calcSettlement.getFrom(),
+                        calcSettlement.getTo(),
+                        calcSettlement.getAmountCents()
+                ));
+            }
 
-        // Create settlement record
-        Settlement settlement = new Settlement(new Date(), settlementItems, description);
-        settlement.setId(generateSettlementId());
-        settlements.add(settlement);
+            // Create settlement record
+            Settlement settlement = new Settlement(new Date(), settlementItems, description);
+            settlement.setId(generateSettlementId());
+            settlements.add(settlement);
+            settlementMap.put(settlement.getId(), settlement);
+
+            // The current expenses become this cycle's archive segment. The analytics cube
+            // already counts them, so the segment is marked as counted.
+            List<Expense> segment = new ArrayList<>(expenses.list());
+            archived = segment.size();
+            if (!segment.isEmpty()) {
+                archiveSegments.add(settlement.getId());
+                archive.put(settlement.getId(), segment);
+                segmentsInAnalytics.add(settlement.getId());
+            }
 
-        // Archive current expenses
-        archivedExpenses.addAll(expenseList);
+            // Clear current expenses and reset people's totals
+            expenses.clear();
+            expensesChanged = true;
+            historyChanged = true;
+            for (Person person : peopleList) {
+                syncTotalPaid(person);
+            }
 
-        // Reset people's totals
-        for (Person person : peopleList) {
-            person.setTotalPaid(0.0);
+            // Persist the whole cycle change, new settlement id included, as one unit
+            storage.archiveCycle(settlement, segment);
+            recordChange(DataChange.Type.CYCLE_RESET, settlement.getId());
+
+            return settlement;
+        } catch (RuntimeException | Error e) {
+            abandonUnit();
+            throw e;
+        } finally {
+            endUnit();
+            // Includes persisting the unit, which is what the user waits on
+            Metrics.RESET_CYCLE.stop(start, archived);
         }
-
-        // Clear current expenses
-        expenseList.clear();
-
-        // Save all changes
-        saveAllData();
-
-        return settlement;
     }
 
-    private Map<Person, Double> calculateCurrentBalances() {
-        double totalExpenses = getTotalExpenses();
-        return Calculator.calculateBalances(peopleList, totalExpenses);
+    // Only called while holding the write lock
+    private Balances calculateCurrentBalances() {
+        return ledger.getBalances(peopleList);
     }
 
     // Check if cycle can be ended (all balances are zero)
     public boolean canEndCycle() {
-        Map<Person, Double> balances = calculateCurrentBalances();
-        for (double balance : balances.values()) {
-            if (Math.abs(balance) > 0.01) { // Allow small rounding errors
-                return false;
-            }
-        }
-        return true;
+        awaitReady();
+        return ledger.getBalances(peopleView).isSettled();
     }
 
     public boolean removeSettlement(String settlementId) {
-        for (Settlement settlement : settlements) {
-            if (settlement.getId().equals(settlementId)) {
-                boolean removed = settlements.remove(settlement);
-                if (removed) {
-                    saveSettlements();
-                }
-                return removed;
+        ensureHistoryLoaded();
+        beginUnit();
+        try {
+            Settlement settlement = settlementId != null ? settlementMap.remove(settlementId) : null;
+            if (settlement == null) {
+                return false;
+            }
+            // Its archive segment stays: archived expenses outlive the settlement record
+            boolean removed = settlements.remove(settlement);
+            historyChanged |= removed;
+            if (removed) {
+                storage.deleteSettlement(settlementId);
+                recordChange(DataChange.Type.SETTLEMENT_REMOVED, settlementId);
             }
+            return removed;
+        } catch (RuntimeException | Error e) {
+            abandonUnit();
+            throw e;
+        } finally {
+            endUnit();
         }
-        return false;
     }
 }
\ No newline at end of file
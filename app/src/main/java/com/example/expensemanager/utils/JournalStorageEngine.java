@@ -0,0 +1,888 @@
+package com.example.expensemanager.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.expensemanager.model.Expense;
+import com.example.expensemanager.model.ExpenseAdapter;
+import com.example.expensemanager.model.Person;
+import com.example.expensemanager.model.PersonAdapter;
+import com.example.expensemanager.model.Settlement;
+import com.example.expensemanager.model.SettlementAdapter;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only storage: every mutation is written as one JSON line to a private journal
+ * file, so the cost of a write does not depend on how many expenses exist. The lines of
+ * one unit of work (begin() to commit()) are written together, and every line but the
+ * last is marked "more", so replay drops a unit that a crash cut short. Once the
+ * journal outgrows the last snapshot, DataStore hands over its state and the journal is
+ * folded into a fresh snapshot. Loading reads the snapshot and replays the journal.
+ *
+ * The snapshot is split in two files so startup never parses history: people and
+ * current expenses, and history (settlements and the list of archive segments). History
+ * records met while replaying are parked until loadHistory() asks for them.
+ *
+ * Each archive segment is a file of its own under archive/, written once when its cycle
+ * is reset and before the journal line that records the reset, so a replayed reset
+ * always finds its segment. Segments are never rewritten by compaction.
+ *
+ * Snapshots and segments are written with SnapshotCodec; history and segments are
+ * deflated as well. Files from the earlier JSON format are read as a fallback and
+ * converted the first time they are loaded.
+ */
+public class JournalStorageEngine implements StorageEngine {
+    private static final String TAG = "JournalStorageEngine";
+
+    private static final String SNAPSHOT_FILE = "store_snapshot.bin";
+    private static final String HISTORY_FILE = "store_history.bin";
+    private static final String BINARY_SUFFIX = ".bin";
+    private static final String JSON_SUFFIX = ".json";
+    private static final String JOURNAL_FILE = "store_journal.log";
+    private static final String ARCHIVE_DIR = "archive";
+
+    // Never compact a journal smaller than this, however small the snapshot is
+    private static final long MIN_COMPACTION_BYTES = 64 * 1024;
+
+    enum Op {
+        SAVE_PERSON, DELETE_PERSON,
+        SAVE_EXPENSE, DELETE_EXPENSE,
+        SAVE_SETTLEMENT, DELETE_SETTLEMENT,
+        ARCHIVE_CYCLE,
+        COUNTERS
+    }
+
+    // One journal line; only the fields the operation needs are set
+    static class Record {
+        long seq;
+        Op op;
+        String id;
+        Person person;
+        Expense expense;
+        Settlement settlement;
+        IdCounters counters;
+        // Set on every line of a unit except the last
+        boolean more;
+
+        Record() {
+        }
+
+        Record(Op op) {
+            this.op = op;
+        }
+    }
+
+    // Hand-written so a journal line is read and written without reflection
+    static class RecordAdapter extends TypeAdapter<Record> {
+        private final PersonAdapter personAdapter = new PersonAdapter();
+        private final ExpenseAdapter expenseAdapter = new ExpenseAdapter();
+        private final SettlementAdapter settlementAdapter = new SettlementAdapter();
+
+        @Override
+        public void write(JsonWriter out, Record record) throws IOException {
+            out.beginObject();
+            out.name("seq").value(record.seq);
+            out.name("op").value(record.op.name());
+            if (record.id != null) {
+                out.name("id").value(record.id);
+            }
+            if (record.person != null) {
+                out.name("person");
+                personAdapter.write(out, record.person);
+            }
+            if (record.expense != null) {
+                out.name("expense");
+                expenseAdapter.write(out, record.expense);
+            }
+            if (record.settlement != null) {
+                out.name("settlement");
+                settlementAdapter.write(out, record.settlement);
+            }
+            if (record.counters != null) {
+                out.name("counters");
+                StoreSnapshotAdapter.writeCounters(out, record.counters);
+            }
+            if (record.more) {
+                out.name("more").value(true);
+            }
+            out.endObject();
+        }
+
+        @Override
+        public Record read(JsonReader in) throws IOException {
+            Record record = new Record();
+            in.beginObject();
+            while (in.hasNext()) {
+                String field = in.nextName();
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    continue;
+                }
+                switch (field) {
+                    case "seq":
+                        record.seq = in.nextLong();
+                        break;
+                    case "op":
+                        record.op = parseOp(in.nextString());
+                        break;
+                    case "id":
+                        record.id = in.nextString();
+                        break;
+                    case "person":
+                        record.person = personAdapter.read(in);
+                        break;
+                    case "expense":
+                        record.expense = expenseAdapter.read(in);
+                        break;
+                    case "settlement":
+                        record.settlement = settlementAdapter.read(in);
+                        break;
+                    case "counters":
+                        record.counters = StoreSnapshotAdapter.readCounters(in);
+                        break;
+                    case "more":
+                        record.more = in.nextBoolean();
+                        break;
+                    default:
+                        in.skipValue();
+                        break;
+                }
+            }
+            in.endObject();
+            return record;
+        }
+
+        // Unknown operations from a newer version are skipped, as Gson's enum adapter did
+        private static Op parseOp(String name) {
+            try {
+                return Op.valueOf(name);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+    // A history record seen during replay, with the expenses it archived at that point
+    private static class PendingHistory {
+        final Record record;
+        final List<Expense> archived;
+
+        PendingHistory(Record record, List<Expense> archived) {
+            this.record = record;
+            this.archived = archived;
+        }
+    }
+
+    private final File snapshotFile;
+    private final File historyFile;
+    private final File journalFile;
+    private final File archiveDir;
+    private final SharedPreferences legacyPreferences;
+    private final RecordAdapter recordAdapter = new RecordAdapter();
+    private final ExpenseAdapter expenseAdapter = new ExpenseAdapter();
+    private final StoreSnapshotAdapter snapshotAdapter = new StoreSnapshotAdapter();
+    // The current snapshot is read at every launch, so it skips deflate
+    private final SnapshotCodec snapshotCodec = new SnapshotCodec(false);
+    private final SnapshotCodec historyCodec = new SnapshotCodec(true);
+
+    private FileOutputStream journalOut;
+    private long sequence;
+    private long journalBytes;
+    private long snapshotBytes;
+    private final List<PendingHistory> pendingHistory = new ArrayList<>();
+    // Records of the open unit, written on commit()
+    private final List<Record> unit = new ArrayList<>();
+    private int unitDepth;
+    // Segments that could not be written; served from memory and retried on compaction
+    private final Map<String, List<Expense>> unwrittenSegments = new ConcurrentHashMap<>();
+
+    public JournalStorageEngine(Context context, SharedPreferences legacyPreferences) {
+        this(context.getFilesDir(), legacyPreferences);
+    }
+
+    // Keeps every file under `dir`
+    JournalStorageEngine(File dir, SharedPreferences legacyPreferences) {
+        this.snapshotFile = new File(dir, SNAPSHOT_FILE);
+        this.historyFile = new File(dir, HISTORY_FILE);
+        this.journalFile = new File(dir, JOURNAL_FILE);
+        this.archiveDir = new File(dir, ARCHIVE_DIR);
+        this.legacyPreferences = legacyPreferences;
+    }
+
+    @Override
+    public StoreSnapshot load() {
+        migrateFromJson(snapshotFile, snapshotCodec);
+        if (!snapshotFile.exists() && !journalFile.exists() && LegacyPreferences.hasData(legacyPreferences)) {
+            // One-shot import of the old SharedPreferences format. The preferences stay the
+            // only copy until the snapshot is on disk; if it is not, nothing else is written
+            // (no journal either) and the next launch tries again.
+            if (!compact(LegacyPreferences.read(legacyPreferences, new Gson()))) {
+                throw new StorageException("Failed to import data from SharedPreferences");
+            }
+            LegacyPreferences.remove(legacyPreferences);
+        }
+        StoreSnapshot snapshot = readSnapshot(snapshotFile, snapshotCodec);
+        // Called again by DataStore after a failed commit, so start from scratch
+        pendingHistory.clear();
+        snapshot.getArchivedExpenses().clear();
+        snapshot.getSettlements().clear();
+        snapshot.getArchiveSegments().clear();
+        // History may still be in JSON until loadHistory() converts it
+        snapshotBytes = snapshotFile.length() + historyFile.length() + jsonFile(historyFile).length();
+        Metrics.SNAPSHOT_BYTES.set(snapshotBytes);
+        sequence = snapshot.getLastSequence();
+        long validBytes = replayJournal(snapshot);
+        // If the tail can't be cut off now, the first write tries again before appending
+        journalBytes = validBytes;
+        if (truncateJournal(validBytes)) {
+            openJournal(true);
+        }
+        return snapshot;
+    }
+
+    @Override
+    public void loadHistory(StoreSnapshot snapshot) {
+        migrateFromJson(historyFile, historyCodec);
+        migrateSegmentsFromJson();
+        StoreSnapshot history = readSnapshot(historyFile, historyCodec);
+        // History files from before segments hold the whole archive; it becomes the legacy
+        // segment, and the next compaction drops it from the file
+        if (adoptLegacyArchive(history.getArchivedExpenses())) {
+            snapshot.getArchiveSegments().add(LEGACY_SEGMENT);
+        }
+        for (String id : history.getArchiveSegments()) {
+            if (!snapshot.getArchiveSegments().contains(id)) {
+                snapshot.getArchiveSegments().add(id);
+            }
+        }
+        snapshot.getSettlements().addAll(history.getSettlements());
+        for (PendingHistory pending : pendingHistory) {
+            if (pending.record.seq > history.getLastSequence()) {
+                applyHistory(pending, snapshot);
+            }
+        }
+        pendingHistory.clear();
+    }
+
+    @Override
+    public List<Expense> loadArchiveSegment(String settlementId) {
+        List<Expense> unwritten = unwrittenSegments.get(settlementId);
+        if (unwritten != null) {
+            return new ArrayList<>(unwritten);
+        }
+        File file = segmentFile(settlementId);
+        File json = jsonFile(file);
+        try {
+            if (file.exists()) {
+                return historyCodec.read(file).getExpenses();
+            }
+            // Only if converting it failed when history was loaded
+            return json.exists() ? readJsonSegment(json) : new ArrayList<>();
+        } catch (IOException | RuntimeException e) {
+            // Not an empty segment: the caller must not cache or count it as one
+            throw new StorageException("Failed to read archive segment " + settlementId, e);
+        }
+    }
+
+    private List<Expense> readJsonSegment(File file) throws IOException {
+        List<Expense> expenses = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("expenses")) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        Expense expense = expenseAdapter.read(reader);
+                        if (expense != null) {
+                            expenses.add(expense);
+                        }
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        return expenses;
+    }
+
+    @Override
+    public void savePerson(Person person) {
+        Record record = new Record(Op.SAVE_PERSON);
+        record.person = person;
+        append(record);
+    }
+
+    @Override
+    public void deletePerson(String personId) {
+        Record record = new Record(Op.DELETE_PERSON);
+        record.id = personId;
+        append(record);
+    }
+
+    @Override
+    public void saveExpense(Expense expense) {
+        Record record = new Record(Op.SAVE_EXPENSE);
+        record.expense = expense;
+        append(record);
+    }
+
+    @Override
+    public void deleteExpense(String expenseId) {
+        Record record = new Record(Op.DELETE_EXPENSE);
+        record.id = expenseId;
+        append(record);
+    }
+
+    @Override
+    public void saveSettlement(Settlement settlement) {
+        Record record = new Record(Op.SAVE_SETTLEMENT);
+        record.settlement = settlement;
+        append(record);
+    }
+
+    @Override
+    public void deleteSettlement(String settlementId) {
+        Record record = new Record(Op.DELETE_SETTLEMENT);
+        record.id = settlementId;
+        append(record);
+    }
+
+    @Override
+    public void archiveCycle(Settlement settlement, List<Expense> archived) {
+        // The segment must be on disk before the journal line that refers to it
+        if (!archived.isEmpty()) {
+            saveSegment(settlement.getId(), archived);
+        }
+        Record record = new Record(Op.ARCHIVE_CYCLE);
+        record.settlement = settlement;
+        append(record);
+    }
+
+    @Override
+    public void saveCounters(IdCounters counters) {
+        Record record = new Record(Op.COUNTERS);
+        record.counters = counters.copy();
+        append(record);
+    }
+
+    @Override
+    public void begin() {
+        unitDepth++;
+    }
+
+    @Override
+    public void commit() {
+        if (unitDepth == 0 || --unitDepth > 0 || unit.isEmpty()) {
+            return;
+        }
+        List<Record> records = new ArrayList<>(unit);
+        unit.clear();
+        write(records);
+    }
+
+    @Override
+    public void rollback() {
+        unitDepth = 0;
+        if (!unit.isEmpty()) {
+            forget(unit);
+            unit.clear();
+        }
+    }
+
+    @Override
+    public void clear() {
+        unit.clear();
+        closeJournal();
+        delete(snapshotFile);
+        delete(jsonFile(snapshotFile));
+        delete(historyFile);
+        delete(jsonFile(historyFile));
+        delete(journalFile);
+        File[] segments = archiveDir.listFiles();
+        if (segments != null) {
+            for (File segment : segments) {
+                delete(segment);
+            }
+        }
+        unwrittenSegments.clear();
+        sequence = 0;
+        journalBytes = 0;
+        snapshotBytes = 0;
+        pendingHistory.clear();
+        openJournal(false);
+    }
+
+    // Amortised O(1): the journal must grow as large as the snapshot before we rewrite it
+    @Override
+    public boolean needsCompaction() {
+        return journalBytes > Math.max(MIN_COMPACTION_BYTES, snapshotBytes);
+    }
+
+    @Override
+    public boolean compact(StoreSnapshot snapshot) {
+        long start = Metrics.STORE_COMPACT.start();
+        // The journal is the only other record of a segment that failed to write
+        for (Map.Entry<String, List<Expense>> segment : unwrittenSegments.entrySet()) {
+            if (!writeSegment(segment.getKey(), segment.getValue())) {
+                return false;
+            }
+            unwrittenSegments.remove(segment.getKey());
+        }
+        List<String> segments = new ArrayList<>();
+        // Only an import from the old preferences format brings archived expenses along
+        if (adoptLegacyArchive(snapshot.getArchivedExpenses())) {
+            segments.add(LEGACY_SEGMENT);
+        } else if (!snapshot.getArchivedExpenses().isEmpty()) {
+            return false;
+        }
+        segments.addAll(snapshot.getArchiveSegments());
+
+        StoreSnapshot current = new StoreSnapshot(snapshot.getPeople(), snapshot.getExpenses(),
+                new ArrayList<>(), new ArrayList<>());
+        current.getFormerPeople().addAll(snapshot.getFormerPeople());
+        StoreSnapshot history = new StoreSnapshot(new ArrayList<>(), new ArrayList<>(),
+                new ArrayList<>(), snapshot.getSettlements());
+        history.getArchiveSegments().addAll(segments);
+        current.getCounters().raiseTo(snapshot.getCounters());
+        current.setLastSequence(sequence);
+        history.setLastSequence(sequence);
+
+        // History goes first: its lastSequence must never be behind the current file's
+        if (!writeSnapshot(historyFile, history, historyCodec)
+                || !writeSnapshot(snapshotFile, current, snapshotCodec)) {
+            return false;
+        }
+        snapshotBytes = snapshotFile.length() + historyFile.length();
+        Metrics.SNAPSHOT_BYTES.set(snapshotBytes);
+        pendingHistory.clear();
+
+        // Records up to this sequence are now in the snapshots; a crash before this point
+        // is harmless because replay skips them by sequence number
+        closeJournal();
+        openJournal(false);
+        Metrics.STORE_COMPACT.stop(start);
+        return true;
+    }
+
+    private boolean writeSnapshot(File file, StoreSnapshot snapshot, SnapshotCodec codec) {
+        try {
+            codec.write(file, snapshot);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write " + file.getName(), e);
+            return false;
+        }
+    }
+
+    // Converts a JSON snapshot left by an older version, then removes it. If the binary
+    // file can't be written the JSON stays, and is read again next time.
+    private void migrateFromJson(File file, SnapshotCodec codec) {
+        File json = jsonFile(file);
+        if (!json.exists()) {
+            return;
+        }
+        if (!file.exists() && !writeSnapshot(file, readSnapshot(file, codec), codec)) {
+            return;
+        }
+        delete(json);
+    }
+
+    private void migrateSegmentsFromJson() {
+        File[] files = archiveDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File json : files) {
+            String name = json.getName();
+            if (!name.endsWith(JSON_SUFFIX)) {
+                continue;
+            }
+            File file = new File(archiveDir, name.substring(0, name.length() - JSON_SUFFIX.length()) + BINARY_SUFFIX);
+            if (!file.exists()) {
+                try {
+                    historyCodec.write(file, segmentSnapshot(readJsonSegment(json)));
+                } catch (IOException | RuntimeException e) {
+                    Log.e(TAG, "Failed to convert " + name, e);
+                    continue;
+                }
+            }
+            delete(json);
+        }
+    }
+
+    // A segment is stored as a snapshot holding just its expenses
+    private static StoreSnapshot segmentSnapshot(List<Expense> expenses) {
+        return new StoreSnapshot(new ArrayList<>(), expenses, new ArrayList<>(), new ArrayList<>());
+    }
+
+    // Writes the legacy segment unless an earlier launch already did; false if there
+    // was nothing to adopt or it could not be written
+    private boolean adoptLegacyArchive(List<Expense> archived) {
+        if (archived.isEmpty()) {
+            return false;
+        }
+        return segmentFile(LEGACY_SEGMENT).exists() || writeSegment(LEGACY_SEGMENT, archived);
+    }
+
+    private void saveSegment(String settlementId, List<Expense> expenses) {
+        if (!writeSegment(settlementId, expenses)) {
+            // Don't leave an older file under this id for replay to trust
+            delete(segmentFile(settlementId));
+            delete(jsonFile(segmentFile(settlementId)));
+            unwrittenSegments.put(settlementId, new ArrayList<>(expenses));
+        }
+    }
+
+    private boolean writeSegment(String settlementId, List<Expense> expenses) {
+        if (!archiveDir.isDirectory() && !archiveDir.mkdirs()) {
+            Log.e(TAG, "Failed to create " + archiveDir);
+            return false;
+        }
+        try {
+            historyCodec.write(segmentFile(settlementId), segmentSnapshot(expenses));
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write archive segment " + settlementId, e);
+            return false;
+        }
+    }
+
+    // Settlement ids are generated as "S<n>", but anything else is escaped for the file name
+    private File segmentFile(String settlementId) {
+        StringBuilder name = new StringBuilder(settlementId.length() + 5);
+        for (byte b : settlementId.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-' || c == '_') {
+                name.append(c);
+            } else {
+                name.append('%').append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+            }
+        }
+        return new File(archiveDir, name.append(BINARY_SUFFIX).toString());
+    }
+
+    // Where the JSON format kept the same file
+    private static File jsonFile(File binary) {
+        String path = binary.getPath();
+        return new File(path.substring(0, path.length() - BINARY_SUFFIX.length()) + JSON_SUFFIX);
+    }
+
+    private static void delete(File file) {
+        if (!file.delete() && file.exists()) {
+            Log.w(TAG, "Could not delete " + file);
+        }
+    }
+
+    private void append(Record record) {
+        record.seq = ++sequence;
+        if (unitDepth > 0) {
+            unit.add(record);
+        } else {
+            write(Collections.singletonList(record));
+        }
+    }
+
+    // One write and one sync for the whole unit. A unit that fails is cut off again, so
+    // the next one starts on a line of its own, and the caller hears about it.
+    private void write(List<Record> records) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < records.size(); i++) {
+            Record record = records.get(i);
+            record.more = i < records.size() - 1;
+            lines.append(recordAdapter.toJson(record)).append('\n');
+        }
+        byte[] bytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+        if (journalOut == null) {
+            // Opening failed earlier, or a failed write could not be cut off
+            reopenJournal();
+        }
+        try {
+            if (journalOut == null) {
+                throw new IOException("Journal is not open");
+            }
+            journalOut.write(bytes);
+            journalOut.getFD().sync();
+        } catch (IOException e) {
+            discardFailedWrite(records);
+            throw new StorageException("Failed to append " + records.size() + " journal records", e);
+        }
+        journalBytes += bytes.length;
+        Metrics.JOURNAL_UNIT_BYTES.set(bytes.length);
+        Metrics.JOURNAL_RECORDS.add(records.size());
+    }
+
+    private void discardFailedWrite(List<Record> records) {
+        forget(records);
+        if (journalOut == null) {
+            return;
+        }
+        try {
+            journalOut.getChannel().truncate(journalBytes);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to cut a failed unit off the journal", e);
+            closeJournal();
+        }
+    }
+
+    // Hands the records' sequence numbers out again and drops the segments they archived
+    private void forget(List<Record> records) {
+        sequence = records.get(0).seq - 1;
+        for (Record record : records) {
+            if (record.op == Op.ARCHIVE_CYCLE) {
+                // The settlement id will be handed out again
+                unwrittenSegments.remove(record.settlement.getId());
+                delete(segmentFile(record.settlement.getId()));
+            }
+        }
+    }
+
+    // Cuts whatever follows the last good unit before appending again
+    private void reopenJournal() {
+        if (truncateJournal(journalBytes)) {
+            openJournal(true);
+        }
+    }
+
+    // Cuts off a torn or unfinished unit, so new units are not appended after it. False
+    // if the journal could not be cut.
+    private boolean truncateJournal(long validBytes) {
+        if (!journalFile.exists() || journalFile.length() == validBytes) {
+            return true;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(journalFile, "rw")) {
+            if (file.length() > validBytes) {
+                file.setLength(validBytes);
+            } else {
+                // The last unit lost only its final newline
+                file.seek(file.length());
+                file.write('\n');
+            }
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to truncate journal", e);
+            return false;
+        }
+    }
+
+    private void openJournal(boolean append) {
+        closeJournal();
+        try {
+            journalOut = new FileOutputStream(journalFile, append);
+            journalBytes = append ? journalFile.length() : 0;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to open journal", e);
+        }
+    }
+
+    private void closeJournal() {
+        if (journalOut == null) return;
+        try {
+            journalOut.close();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to close journal", e);
+        }
+        journalOut = null;
+    }
+
+    // Reads the binary file, or its JSON predecessor if that is all there is
+    private StoreSnapshot readSnapshot(File file, SnapshotCodec codec) {
+        File source = file.exists() ? file : jsonFile(file);
+        if (!source.exists()) {
+            return new StoreSnapshot();
+        }
+        try {
+            if (source == file) {
+                return codec.read(file);
+            }
+            try (JsonReader reader = new JsonReader(new BufferedReader(
+                    new InputStreamReader(new FileInputStream(source), StandardCharsets.UTF_8)))) {
+                StoreSnapshot snapshot = snapshotAdapter.read(reader);
+                return snapshot != null ? snapshot : new StoreSnapshot();
+            }
+        } catch (IOException | RuntimeException e) {
+            // Keep the unreadable file around instead of overwriting it on the next compaction
+            Log.e(TAG, "Failed to read " + source.getName(), e);
+            if (!source.renameTo(new File(source.getPath() + ".corrupt"))) {
+                Log.w(TAG, "Could not set aside corrupt " + source.getName());
+            }
+            return new StoreSnapshot();
+        }
+    }
+
+    // Returns the length of the journal up to the end of its last complete unit
+    private long replayJournal(StoreSnapshot snapshot) {
+        Map<String, Person> people = new LinkedHashMap<>();
+        for (Person person : snapshot.getPeople()) {
+            people.put(person.getId(), person);
+        }
+        Map<String, Person> former = new LinkedHashMap<>();
+        for (Person person : snapshot.getFormerPeople()) {
+            former.put(person.getId(), person);
+        }
+        Map<String, Expense> expenses = new LinkedHashMap<>();
+        for (Expense expense : snapshot.getExpenses()) {
+            expenses.put(expense.getId(), expense);
+        }
+
+        long readBytes = 0;
+        long validBytes = 0;
+        if (journalFile.exists()) {
+            List<Record> pending = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(new FileInputStream(journalFile), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    readBytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    Record record;
+                    try {
+                        record = recordAdapter.fromJson(line);
+                    } catch (IOException | RuntimeException e) {
+                        // A torn last line from a crash mid-write. Failed writes are cut off
+                        // before the next unit, so nothing after it was acknowledged
+                        Log.w(TAG, "Ignoring unreadable journal tail", e);
+                        break;
+                    }
+                    if (record == null) {
+                        continue;
+                    }
+                    // A unit is applied only once its last line has been read
+                    pending.add(record);
+                    if (record.more) {
+                        continue;
+                    }
+                    for (Record unitRecord : pending) {
+                        if (unitRecord.op != null && unitRecord.seq > snapshot.getLastSequence()) {
+                            apply(unitRecord, people, former, expenses, snapshot);
+                            sequence = Math.max(sequence, unitRecord.seq);
+                        }
+                    }
+                    pending.clear();
+                    validBytes = readBytes;
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to read journal", e);
+            }
+            if (!pending.isEmpty()) {
+                Log.w(TAG, "Dropping " + pending.size() + " records of an unfinished unit");
+            }
+        }
+
+        snapshot.getPeople().clear();
+        snapshot.getPeople().addAll(people.values());
+        snapshot.getFormerPeople().clear();
+        snapshot.getFormerPeople().addAll(former.values());
+        snapshot.getExpenses().clear();
+        snapshot.getExpenses().addAll(expenses.values());
+        return validBytes;
+    }
+
+    private void apply(Record record, Map<String, Person> people, Map<String, Person> former,
+                       Map<String, Expense> expenses, StoreSnapshot snapshot) {
+        switch (record.op) {
+            case SAVE_PERSON: {
+                Person existing = people.get(record.person.getId());
+                if (existing != null) {
+                    existing.setName(record.person.getName());
+                    existing.setColorHex(record.person.getColorHex());
+                } else {
+                    people.put(record.person.getId(), record.person);
+                }
+                break;
+            }
+            case DELETE_PERSON: {
+                // Settlements may still name this person, so keep them as a former person
+                Person removed = people.remove(record.id);
+                if (removed != null) {
+                    former.put(removed.getId(), removed);
+                }
+                Iterator<Expense> it = expenses.values().iterator();
+                while (it.hasNext()) {
+                    if (record.id.equals(it.next().getPaidBy().getId())) {
+                        it.remove();
+                    }
+                }
+                break;
+            }
+            case SAVE_EXPENSE:
+                expenses.put(record.expense.getId(), record.expense);
+                break;
+            case DELETE_EXPENSE:
+                expenses.remove(record.id);
+                break;
+            case SAVE_SETTLEMENT:
+            case DELETE_SETTLEMENT:
+                pendingHistory.add(new PendingHistory(record, null));
+                break;
+            case ARCHIVE_CYCLE:
+                pendingHistory.add(new PendingHistory(record, new ArrayList<>(expenses.values())));
+                expenses.clear();
+                break;
+            case COUNTERS:
+                snapshot.getCounters().raiseTo(record.counters);
+                break;
+        }
+    }
+
+    private void applyHistory(PendingHistory pending, StoreSnapshot snapshot) {
+        Record record = pending.record;
+        switch (record.op) {
+            case SAVE_SETTLEMENT:
+                snapshot.getSettlements().add(record.settlement);
+                break;
+            case DELETE_SETTLEMENT: {
+                Iterator<Settlement> it = snapshot.getSettlements().iterator();
+                while (it.hasNext()) {
+                    if (record.id.equals(it.next().getId())) {
+                        it.remove();
+                        break;
+                    }
+                }
+                break;
+            }
+            case ARCHIVE_CYCLE: {
+                snapshot.getSettlements().add(record.settlement);
+                if (pending.archived.isEmpty()) {
+                    break;
+                }
+                // Journals from before segments, or a segment write that failed: the
+                // replayed expenses are exactly what the cycle archived
+                String id = record.settlement.getId();
+                if (!segmentFile(id).exists() && !unwrittenSegments.containsKey(id)) {
+                    saveSegment(id, pending.archived);
+                }
+                snapshot.getArchiveSegments().remove(id);
+                snapshot.getArchiveSegments().add(id);
+                break;
+            }
+            default:
+                break;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.expensemanager.utils;
+
+import android.content.SharedPreferences;
+
+import com.example.expensemanager.model.Expense;
+import com.example.expensemanager.model.Person;
+import com.example.expensemanager.model.Settlement;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads the old whole-list JSON strings that DataStore used to keep in SharedPreferences
+class LegacyPreferences {
+
+    static final String KEY_PEOPLE = "people_list";
+    static final String KEY_EXPENSES = "expenses_list";
+    static final String KEY_ARCHIVED_EXPENSES = "archived_expenses";
+    static final String KEY_SETTLEMENTS = "settlements";
+
+    private LegacyPreferences() {
+    }
+
+    static boolean hasData(SharedPreferences preferences) {
+        return preferences.contains(KEY_PEOPLE)
+                || preferences.contains(KEY_EXPENSES)
+                || preferences.contains(KEY_ARCHIVED_EXPENSES)
+                || preferences.contains(KEY_SETTLEMENTS);
+    }
+
+    static StoreSnapshot read(SharedPreferences preferences, Gson gson) {
+        Type personListType = new TypeToken<List<Person>>(){}.getType();
+        Type expenseListType = new TypeToken<List<Expense>>(){}.getType();
+        Type settlementListType = new TypeToken<List<Settlement>>(){}.getType();
+
+        List<Person> people = readList(preferences, gson, KEY_PEOPLE, personListType);
+        List<Expense> expenses = readList(preferences, gson, KEY_EXPENSES, expenseListType);
+        List<Expense> archived = readList(preferences, gson, KEY_ARCHIVED_EXPENSES, expenseListType);
+        List<Settlement> settlements = readList(preferences, gson, KEY_SETTLEMENTS, settlementListType);
+
+        // The old format embedded a full copy of each person, so those copies are the only
+        // record left of people who were removed; keep them as former people
+        StoreSnapshot snapshot = new StoreSnapshot(people, expenses, archived, settlements);
+        new PersonRegistry().link(snapshot);
+        snapshot.getFormerPeople().addAll(PersonRegistry.formerPeople(snapshot));
+        return snapshot;
+    }
+
+    // Drop the imported lists; ID counters stay where they are
+    static void remove(SharedPreferences preferences) {
+        preferences.edit()
+                .remove(KEY_PEOPLE)
+                .remove(KEY_EXPENSES)
+                .remove(KEY_ARCHIVED_EXPENSES)
+                .remove(KEY_SETTLEMENTS)
+                .apply();
+    }
+
+    private static <T> List<T> readList(SharedPreferences preferences, Gson gson, String key, Type type) {
+        String json = preferences.getString(key, "[]");
+        List<T> list = gson.fromJson(json, type);
+        return list != null ? list : new ArrayList<>();
+    }
+}
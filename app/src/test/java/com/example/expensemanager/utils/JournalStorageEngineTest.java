@@ -0,0 +1,129 @@
+package com.example.expensemanager.utils;
+
+import android.content.SharedPreferences;
+
+import com.example.expensemanager.model.Expense;
+import com.example.expensemanager.model.Person;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+
+public class JournalStorageEngineTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final Person alice = new Person("p1", "Alice", 0, "#FF0000");
+    private final Person bob = new Person("p2", "Bob", 0, "#00FF00");
+
+    private File dir;
+    private File journal;
+    private JournalStorageEngine engine;
+
+    @Before
+    public void setUp() {
+        dir = folder.getRoot();
+        journal = new File(dir, "store_journal.log");
+    }
+
+    @Test
+    public void replaysCommittedUnits() {
+        reopen();
+        engine.savePerson(alice);
+        engine.begin();
+        engine.savePerson(bob);
+        engine.saveExpense(new Expense("e1", bob, 500, "Lunch", new Date(0), "Food"));
+        engine.commit();
+
+        StoreSnapshot snapshot = reopen();
+        assertEquals(2, snapshot.getPeople().size());
+        assertEquals(1, snapshot.getExpenses().size());
+        assertEquals("p2", snapshot.getExpenses().get(0).getPaidBy().getId());
+    }
+
+    @Test
+    public void dropsUnitThatWasCutShort() throws IOException {
+        reopen();
+        engine.savePerson(alice);
+        long committedBytes = journal.length();
+
+        // The first line of a two-line unit made it to disk, the second did not
+        JournalStorageEngine.Record record = new JournalStorageEngine.Record(JournalStorageEngine.Op.SAVE_PERSON);
+        record.seq = 2;
+        record.person = bob;
+        record.more = true;
+        appendToJournal(new JournalStorageEngine.RecordAdapter().toJson(record) + "\n");
+
+        StoreSnapshot snapshot = reopen();
+        assertEquals(1, snapshot.getPeople().size());
+        assertEquals("p1", snapshot.getPeople().get(0).getId());
+        assertEquals(committedBytes, journal.length());
+
+        // The next unit starts where the dropped one did and survives a reload
+        engine.saveExpense(new Expense("e1", alice, 700, "Taxi", new Date(0), "Travel"));
+        snapshot = reopen();
+        assertEquals(1, snapshot.getPeople().size());
+        assertEquals(1, snapshot.getExpenses().size());
+    }
+
+    @Test
+    public void cutsOffTornLastLine() throws IOException {
+        reopen();
+        engine.savePerson(alice);
+        engine.savePerson(bob);
+        long committedBytes = journal.length();
+        appendToJournal("{\"seq\":3,\"op\":\"SAVE_PE");
+
+        StoreSnapshot snapshot = reopen();
+        assertEquals(2, snapshot.getPeople().size());
+        assertEquals(committedBytes, journal.length());
+
+        engine.deletePerson(bob.getId());
+        snapshot = reopen();
+        assertEquals(1, snapshot.getPeople().size());
+    }
+
+    @Test
+    public void rollbackForgetsTheOpenUnit() {
+        reopen();
+        engine.savePerson(alice);
+        engine.begin();
+        engine.savePerson(bob);
+        engine.rollback();
+        engine.saveExpense(new Expense("e1", alice, 100, "Coffee", new Date(0), "Food"));
+
+        StoreSnapshot snapshot = reopen();
+        assertEquals(1, snapshot.getPeople().size());
+        assertEquals(1, snapshot.getExpenses().size());
+    }
+
+    // A fresh engine over the same files, loaded as DataStore would at launch
+    private StoreSnapshot reopen() {
+        engine = new JournalStorageEngine(dir, emptyPreferences());
+        return engine.load();
+    }
+
+    private void appendToJournal(String text) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(journal, true)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // Nothing left over from the SharedPreferences format
+    private static SharedPreferences emptyPreferences() {
+        return (SharedPreferences) Proxy.newProxyInstance(SharedPreferences.class.getClassLoader(),
+                new Class<?>[]{SharedPreferences.class}, (proxy, method, args) ->
+                        method.getReturnType() == boolean.class ? false : null);
+    }
+}
@@ -0,0 +1,26 @@
+// Pure-JVM JMH benchmarks for the model and logic in the core module.
+// Run with ./gradlew :benchmark:jmh; results are written to build/results/jmh/results.json.
+plugins {
+    java
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    // The real classes, built once in the core module and shared with the app
+    implementation(project(":core"))
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    jvmArgs.set(listOf("-Xmx4g"))
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+}
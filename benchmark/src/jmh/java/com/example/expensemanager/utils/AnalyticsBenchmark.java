@@ -0,0 +1,87 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Expense;
+import com.example.expensemanager.model.Person;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rollup queries against the analytics cube compared with rescanning the expenses.
+ * Expenses are spread over three years so month buckets are realistic.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AnalyticsBenchmark {
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final long START_MILLIS = 1_640_000_000_000L;
+
+    @Param({"10000", "100000"})
+    public int expenseCount;
+
+    private List<Expense> expenses;
+    private AnalyticsCube cube;
+    private long fromMillis;
+    private long toMillis;
+
+    @Setup
+    public void setUp() {
+        List<Person> people = BenchmarkData.people(20);
+        Random random = BenchmarkData.random();
+        expenses = BenchmarkData.expenses(people, expenseCount, random);
+        for (Expense expense : expenses) {
+            expense.setDate(new Date(START_MILLIS + (long) (random.nextDouble() * 3 * 365 * DAY_MILLIS)));
+        }
+        cube = new AnalyticsCube(TimeZone.getTimeZone("UTC"));
+        cube.addAll(expenses);
+        fromMillis = START_MILLIS + 365 * DAY_MILLIS;
+        toMillis = fromMillis + 2 * 365 * DAY_MILLIS;
+    }
+
+    // Monthly spend per category over two years
+    @Benchmark
+    public List<AnalyticsCube.Rollup> monthlyByCategory() {
+        return cube.query(AnalyticsCube.Granularity.MONTH, fromMillis, toMillis,
+                AnalyticsCube.Dimension.CATEGORY, null, null);
+    }
+
+    @Benchmark
+    public Map<String, Long> categoryTotalsFromCube() {
+        return cube.categoryTotals(AnalyticsCube.Granularity.DAY, fromMillis, toMillis);
+    }
+
+    // The same totals the way the screens used to get them: one pass over every expense
+    @Benchmark
+    public Map<String, Long> categoryTotalsByScan() {
+        Map<String, Long> totals = new HashMap<>();
+        for (Expense expense : expenses) {
+            long dateMillis = expense.getDate().getTime();
+            if (dateMillis >= fromMillis && dateMillis <= toMillis) {
+                totals.merge(expense.getCategory(), expense.getAmountCents(), Long::sum);
+            }
+        }
+        return totals;
+    }
+
+    @Benchmark
+    public AnalyticsCube build() {
+        AnalyticsCube built = new AnalyticsCube(TimeZone.getTimeZone("UTC"));
+        built.addAll(expenses);
+        return built;
+    }
+}
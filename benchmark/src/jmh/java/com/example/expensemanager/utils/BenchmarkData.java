@@ -0,0 +1,86 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Expense;
+import com.example.expensemanager.model.Person;
+import com.example.expensemanager.model.Settlement;
+import com.example.expensemanager.model.SettlementItem;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded fixtures so every run and every version measures the same data.
+ */
+final class BenchmarkData {
+    static final String[] CATEGORIES = {
+            "Food", "Transport", "Entertainment", "Utilities", "Shopping", "Other"
+    };
+
+    private static final long SEED = 42L;
+    private static final long START_MILLIS = 1_700_000_000_000L;
+
+    private BenchmarkData() {
+    }
+
+    static Random random() {
+        return new Random(SEED);
+    }
+
+    static List<Person> people(int count) {
+        List<Person> people = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            people.add(new Person("p" + i, "Person " + i, 0, "#4ECDC4"));
+        }
+        return people;
+    }
+
+    static List<Expense> expenses(List<Person> people, int count, Random random) {
+        List<Expense> expenses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Person payer = people.get(random.nextInt(people.size()));
+            long cents = 100 + random.nextInt(50_000);
+            Date date = new Date(START_MILLIS + i * 60_000L);
+            Expense expense = new Expense(payer, cents, "Expense " + i, date,
+                    CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            expense.setId("E" + i);
+            expenses.add(expense);
+        }
+        return expenses;
+    }
+
+    static List<Settlement> settlements(List<Person> people, int count, Random random) {
+        List<Settlement> settlements = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<SettlementItem> items = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                Person from = people.get(random.nextInt(people.size()));
+                Person to = people.get(random.nextInt(people.size()));
+                items.add(new SettlementItem(from, to, 100 + random.nextInt(20_000)));
+            }
+            Settlement settlement = new Settlement(
+                    new Date(START_MILLIS + i * 86_400_000L), items, "Cycle " + i);
+            settlement.setId("S" + i);
+            settlements.add(settlement);
+        }
+        return settlements;
+    }
+
+    // What each person in a group paid during a cycle
+    static long[] paidCents(int count, Random random) {
+        long[] paid = new long[count];
+        for (int i = 0; i < count; i++) {
+            paid[i] = random.nextInt(500_000);
+        }
+        return paid;
+    }
+
+    static long sum(long[] values) {
+        long total = 0;
+        for (long value : values) {
+            total += value;
+        }
+        return total;
+    }
+}
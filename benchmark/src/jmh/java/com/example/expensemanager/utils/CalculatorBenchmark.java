@@ -0,0 +1,52 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Person;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CalculatorBenchmark {
+
+    @Param({"2", "10", "100", "1000", "10000"})
+    public int groupSize;
+
+    private List<Person> people;
+    private long[] paidCents;
+    private long totalCents;
+    private Balances balances;
+
+    @Setup
+    public void setUp() {
+        people = BenchmarkData.people(groupSize);
+        paidCents = BenchmarkData.paidCents(groupSize, BenchmarkData.random());
+        totalCents = BenchmarkData.sum(paidCents);
+        balances = Calculator.calculateBalances(people, paidCents, totalCents);
+    }
+
+    @Benchmark
+    public Balances calculateBalances() {
+        return Calculator.calculateBalances(people, paidCents, totalCents);
+    }
+
+    @Benchmark
+    public List<Calculator.Settlement> greedySettlements() {
+        return Calculator.getSettlementSuggestions(balances, Calculator.Strategy.GREEDY);
+    }
+
+    @Benchmark
+    public List<Calculator.Settlement> minimumTransferSettlements() {
+        return Calculator.getSettlementSuggestions(balances, Calculator.Strategy.MINIMUM_TRANSFERS);
+    }
+}
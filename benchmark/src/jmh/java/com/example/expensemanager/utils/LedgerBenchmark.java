@@ -0,0 +1,72 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Expense;
+import com.example.expensemanager.model.Person;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The in-memory half of DataStore.addExpense/removeExpense: the CurrentExpenses that
+ * DataStore keeps its list, id map, ledger and page index in.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LedgerBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int expenseCount;
+
+    private List<Person> people;
+    private List<Expense> expenses;
+
+    @Setup
+    public void setUp() {
+        people = BenchmarkData.people(20);
+        expenses = BenchmarkData.expenses(people, expenseCount, BenchmarkData.random());
+    }
+
+    @Benchmark
+    public Ledger addAll() {
+        Ledger ledger = new Ledger();
+        for (Expense expense : expenses) {
+            ledger.add(expense);
+        }
+        return ledger;
+    }
+
+    // Adds every expense, then removes every other one by id as the history screen does
+    @Benchmark
+    public long addThenRemoveHalf() {
+        CurrentExpenses current = new CurrentExpenses();
+        current.addAll(expenses);
+        for (int i = 0; i < expenses.size(); i += 2) {
+            current.remove(expenses.get(i).getId());
+        }
+        return current.ledger().getTotalCents();
+    }
+
+    // Removes a payer with everything they paid, as DataStore.removePerson does
+    @Benchmark
+    public int removePayer() {
+        CurrentExpenses current = new CurrentExpenses();
+        current.addAll(expenses);
+        return current.removePaidBy(people.get(0).getId()).size();
+    }
+
+    @Benchmark
+    public Balances balancesFromLedger() {
+        Ledger ledger = addAll();
+        return ledger.getBalances(people);
+    }
+}
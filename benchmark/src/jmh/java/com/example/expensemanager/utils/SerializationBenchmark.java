@@ -0,0 +1,138 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Expense;
+import com.example.expensemanager.model.Person;
+import com.example.expensemanager.model.Settlement;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round-trips of the model lists through their hand-written adapters, and of a whole
+ * snapshot in the JSON format JournalStorageEngine used to write and in the binary one
+ * it writes now, plain and deflated. The encoded size is printed once per run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SerializationBenchmark {
+    private static final Type EXPENSE_LIST = new TypeToken<List<Expense>>() {}.getType();
+    private static final Type SETTLEMENT_LIST = new TypeToken<List<Settlement>>() {}.getType();
+
+    @Param({"1000", "100000", "1000000"})
+    public int records;
+
+    private Gson gson;
+    private List<Expense> expenses;
+    private List<Settlement> settlements;
+    private String expensesJson;
+    private String settlementsJson;
+    private StoreSnapshotAdapter snapshotAdapter;
+    private StoreSnapshot snapshot;
+    private byte[] snapshotBytes;
+    private SnapshotCodec binaryCodec;
+    private SnapshotCodec deflatedCodec;
+    private byte[] binaryBytes;
+    private byte[] deflatedBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        gson = new Gson();
+        List<Person> people = BenchmarkData.people(20);
+        expenses = BenchmarkData.expenses(people, records, BenchmarkData.random());
+        settlements = BenchmarkData.settlements(people, records, BenchmarkData.random());
+        expensesJson = gson.toJson(expenses, EXPENSE_LIST);
+        settlementsJson = gson.toJson(settlements, SETTLEMENT_LIST);
+
+        snapshotAdapter = new StoreSnapshotAdapter();
+        snapshot = new StoreSnapshot(people, new ArrayList<>(), expenses, settlements);
+        snapshotBytes = writeSnapshot();
+
+        binaryCodec = new SnapshotCodec(false);
+        deflatedCodec = new SnapshotCodec(true);
+        binaryBytes = writeBinarySnapshot();
+        deflatedBytes = writeDeflatedSnapshot();
+        System.out.println("snapshot bytes: json=" + snapshotBytes.length
+                + " binary=" + binaryBytes.length + " deflated=" + deflatedBytes.length);
+    }
+
+    @Benchmark
+    public String writeExpenses() {
+        return gson.toJson(expenses, EXPENSE_LIST);
+    }
+
+    @Benchmark
+    public List<Expense> readExpenses() {
+        return gson.fromJson(expensesJson, EXPENSE_LIST);
+    }
+
+    @Benchmark
+    public String writeSettlements() {
+        return gson.toJson(settlements, SETTLEMENT_LIST);
+    }
+
+    @Benchmark
+    public List<Settlement> readSettlements() {
+        return gson.fromJson(settlementsJson, SETTLEMENT_LIST);
+    }
+
+    @Benchmark
+    public byte[] writeSnapshot() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        JsonWriter writer = new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(bytes, StandardCharsets.UTF_8)));
+        snapshotAdapter.write(writer, snapshot);
+        writer.flush();
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public StoreSnapshot readSnapshot() throws IOException {
+        JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(snapshotBytes), StandardCharsets.UTF_8)));
+        return snapshotAdapter.read(reader);
+    }
+
+    @Benchmark
+    public byte[] writeBinarySnapshot() {
+        return binaryCodec.encode(snapshot);
+    }
+
+    @Benchmark
+    public StoreSnapshot readBinarySnapshot() throws IOException {
+        return binaryCodec.decode(binaryBytes);
+    }
+
+    @Benchmark
+    public byte[] writeDeflatedSnapshot() {
+        return deflatedCodec.encode(snapshot);
+    }
+
+    @Benchmark
+    public StoreSnapshot readDeflatedSnapshot() throws IOException {
+        return deflatedCodec.decode(deflatedBytes);
+    }
+}
@@ -0,0 +1,15 @@
+// Plain Java model and logic shared by the app and the JMH benchmarks; nothing here
+// may depend on the Android SDK.
+plugins {
+    `java-library`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+dependencies {
+    api("com.google.code.gson:gson:2.10.1")
+    testImplementation(libs.junit)
+}
@@ -1,13 +1,17 @@
 package com.example.expensemanager.model;
 
+import com.google.gson.annotations.JsonAdapter;
+
 import java.io.Serializable;
 import java.util.Date;
 import java.util.UUID;
 
+@JsonAdapter(ExpenseAdapter.class)
 public class Expense implements Serializable {
     private String id;
     private Person paidBy;
-    private double amount;
+    private long amountCents;
+    private String currency;
     private String description;
     private Date date;
     private String category;
@@ -15,21 +19,24 @@ public class Expense implements Serializable {
     // Empty constructor for GSON
     public Expense() {
         this.id = UUID.randomUUID().toString();
+        this.currency = Money.DEFAULT_CURRENCY;
     }
 
-    public Expense(Person paidBy, double amount, String description, Date date, String category) {
+    public Expense(Person paidBy, long amountCents, String description, Date date, String category) {
         this.id = UUID.randomUUID().toString();
         this.paidBy = paidBy;
-        this.amount = amount;
+        this.amountCents = amountCents;
+        this.currency = Money.DEFAULT_CURRENCY;
         this.description = description;
         this.date = date;
         this.category = category;
     }
 
-    public Expense(String id, Person paidBy, double amount, String description, Date date, String category) {
+    public Expense(String id, Person paidBy, long amountCents, String description, Date date, String category) {
         this.id = id;
         this.paidBy = paidBy;
-        this.amount = amount;
+        this.amountCents = amountCents;
+        this.currency = Money.DEFAULT_CURRENCY;
         this.description = description;
         this.date = date;
         this.category = category;
@@ -42,8 +49,11 @@ public class Expense implements Serializable {
     public Person getPaidBy() { return paidBy; }
     public void setPaidBy(Person paidBy) { this.paidBy = paidBy; }
 
-    public double getAmount() { return amount; }
-    public void setAmount(double amount) { this.amount = amount; }
+    public long getAmountCents() { return amountCents; }
+    public void setAmountCents(long amountCents) { this.amountCents = amountCents; }
+
+    public String getCurrency() { return currency != null ? currency : Money.DEFAULT_CURRENCY; }
+    public void setCurrency(String currency) { this.currency = currency; }
 
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
@@ -0,0 +1,98 @@
+package com.example.expensemanager.model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Hand-written JSON form of an Expense. The payer is written as an id. Reading also
+ * accepts the older format with a double "amount" and an embedded payer.
+ */
+public class ExpenseAdapter extends TypeAdapter<Expense> {
+
+    @Override
+    public void write(JsonWriter out, Expense expense) throws IOException {
+        if (expense == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(expense.getId());
+        out.name("paidBy");
+        PersonAdapter.writeReference(out, expense.getPaidBy());
+        out.name("amountCents").value(expense.getAmountCents());
+        out.name("currency").value(expense.getCurrency());
+        out.name("description").value(expense.getDescription());
+        out.name("date");
+        JsonDates.write(out, expense.getDate());
+        out.name("category").value(expense.getCategory());
+        out.endObject();
+    }
+
+    @Override
+    public Expense read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        // Collected first so the id-taking constructor can be used; the no-arg one would
+        // generate a random UUID for every record only to have it overwritten
+        String id = null;
+        Person paidBy = null;
+        long amountCents = 0;
+        String currency = null;
+        String description = null;
+        Date date = null;
+        String category = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "id":
+                    id = in.nextString();
+                    break;
+                case "paidBy":
+                    paidBy = PersonAdapter.readReference(in);
+                    break;
+                case "amountCents":
+                    amountCents = in.nextLong();
+                    break;
+                case "amount":
+                    amountCents = Money.fromDouble(in.nextDouble());
+                    break;
+                case "currency":
+                    currency = in.nextString();
+                    break;
+                case "description":
+                    description = in.nextString();
+                    break;
+                case "date":
+                    date = JsonDates.read(in);
+                    break;
+                case "category":
+                    category = in.nextString();
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        Expense expense = id != null
+                ? new Expense(id, paidBy, amountCents, description, date, category)
+                : new Expense(paidBy, amountCents, description, date, category);
+        if (currency != null) {
+            expense.setCurrency(currency);
+        }
+        return expense;
+    }
+}
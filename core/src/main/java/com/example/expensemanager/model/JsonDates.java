@@ -0,0 +1,47 @@
+package com.example.expensemanager.model;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Date;
+
+// Dates are stored as epoch milliseconds. Files written before that hold Gson's default
+// locale-formatted strings, which are still parsed with Gson's own date adapter.
+final class JsonDates {
+    private static TypeAdapter<Date> legacyAdapter;
+
+    private JsonDates() {
+    }
+
+    static void write(JsonWriter out, Date date) throws IOException {
+        if (date == null) {
+            out.nullValue();
+        } else {
+            out.value(date.getTime());
+        }
+    }
+
+    static Date read(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token == JsonToken.NUMBER) {
+            return new Date(in.nextLong());
+        }
+        return legacyAdapter().fromJsonTree(new JsonPrimitive(in.nextString()));
+    }
+
+    private static synchronized TypeAdapter<Date> legacyAdapter() {
+        if (legacyAdapter == null) {
+            legacyAdapter = new Gson().getAdapter(Date.class);
+        }
+        return legacyAdapter;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.expensemanager.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money is kept as a long count of minor units (cents) next to an ISO currency code.
+ * These helpers work on the raw long values so the hot paths never allocate or box.
+ */
+public final class Money {
+    public static final String DEFAULT_CURRENCY = "USD";
+
+    private static final int MINOR_DIGITS = 2;
+    private static final long MINOR_PER_MAJOR = 100;
+
+    private Money() {
+    }
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    // Share of participant `index` when `total` is split into `parts` equal parts.
+    // The remainder goes one cent at a time to the first participants, so the
+    // shares always add up to exactly `total`.
+    public static long share(long total, int parts, int index) {
+        long base = Math.floorDiv(total, parts);
+        long remainder = Math.floorMod(total, parts);
+        return index < remainder ? base + 1 : base;
+    }
+
+    // Fills `out` with the shares of an equal split; see share()
+    public static void split(long total, int parts, long[] out) {
+        long base = Math.floorDiv(total, parts);
+        long remainder = Math.floorMod(total, parts);
+        for (int i = 0; i < parts; i++) {
+            out[i] = i < remainder ? base + 1 : base;
+        }
+    }
+
+    // Exact parse of a decimal amount such as "12.5"; rounds half-up to cents
+    public static long parse(String amount) {
+        return new BigDecimal(amount.trim())
+                .setScale(MINOR_DIGITS, RoundingMode.HALF_UP)
+                .unscaledValue()
+                .longValueExact();
+    }
+
+    // For values that were stored as doubles by older versions
+    public static long fromDouble(double amount) {
+        return Math.round(amount * MINOR_PER_MAJOR);
+    }
+
+    // Only for display through NumberFormat; never feed the result back into arithmetic
+    public static double toDouble(long cents) {
+        return cents / (double) MINOR_PER_MAJOR;
+    }
+}
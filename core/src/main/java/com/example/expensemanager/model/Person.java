@@ -1,12 +1,15 @@
 package com.example.expensemanager.model;
 
+import com.google.gson.annotations.JsonAdapter;
+
 import java.io.Serializable;
 import java.util.UUID;
 
+@JsonAdapter(PersonAdapter.class)
 public class Person implements Serializable {
     private String id;
     private String name;
-    private double totalPaid;
+    private transient long totalPaidCents; // Derived from the expenses, never stored
     private String colorHex; // For UI color coding
 
     // Empty constructor for GSON
@@ -18,14 +21,14 @@ public class Person implements Serializable {
     public Person(String name) {
         this.id = UUID.randomUUID().toString();
         this.name = name;
-        this.totalPaid = 0.0;
+        this.totalPaidCents = 0;
         this.colorHex = generateRandomColor();
     }
 
-    public Person(String id, String name, double totalPaid, String colorHex) {
+    public Person(String id, String name, long totalPaidCents, String colorHex) {
         this.id = id;
         this.name = name;
-        this.totalPaid = totalPaid;
+        this.totalPaidCents = totalPaidCents;
         this.colorHex = colorHex;
     }
 
@@ -44,13 +47,13 @@ public class Person implements Serializable {
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
 
-    public double getTotalPaid() { return totalPaid; }
-    public void setTotalPaid(double totalPaid) { this.totalPaid = totalPaid; }
+    public long getTotalPaidCents() { return totalPaidCents; }
+    public void setTotalPaidCents(long totalPaidCents) { this.totalPaidCents = totalPaidCents; }
 
     public String getColorHex() { return colorHex; }
     public void setColorHex(String colorHex) { this.colorHex = colorHex; }
 
-    public void addPayment(double amount) { this.totalPaid += amount; }
+    public void addPayment(long cents) { this.totalPaidCents = Money.add(totalPaidCents, cents); }
 
     @Override
     public boolean equals(Object o) {
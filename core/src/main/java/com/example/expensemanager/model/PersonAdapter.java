@@ -0,0 +1,86 @@
+package com.example.expensemanager.model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Hand-written JSON form of a Person. The total paid is derived and never written.
+ *
+ * Expenses and settlement items refer to people by id only; see writeReference and
+ * readReference. A reference read back carries just the id, and the storage layer swaps
+ * it for the one registered Person with that id. Older files embedded the whole person,
+ * so objects are still accepted and keep their name and color, which matters for people
+ * who have since been removed.
+ */
+public class PersonAdapter extends TypeAdapter<Person> {
+
+    @Override
+    public void write(JsonWriter out, Person person) throws IOException {
+        if (person == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(person.getId());
+        out.name("name").value(person.getName());
+        out.name("colorHex").value(person.getColorHex());
+        out.endObject();
+    }
+
+    @Override
+    public Person read(JsonReader in) throws IOException {
+        // A full record has the same fields an old embedded reference had
+        return readReference(in);
+    }
+
+    static void writeReference(JsonWriter out, Person person) throws IOException {
+        if (person == null) {
+            out.nullValue();
+        } else {
+            out.value(person.getId());
+        }
+    }
+
+    static Person readReference(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        if (token != JsonToken.BEGIN_OBJECT) {
+            return new Person(in.nextString(), null, 0, null);
+        }
+
+        String id = null;
+        String name = null;
+        String colorHex = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "id":
+                    id = in.nextString();
+                    break;
+                case "name":
+                    name = in.nextString();
+                    break;
+                case "colorHex":
+                    colorHex = in.nextString();
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return id != null ? new Person(id, name, 0, colorHex) : null;
+    }
+}
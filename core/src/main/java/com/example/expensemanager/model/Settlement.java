@@ -1,39 +1,53 @@
 package com.example.expensemanager.model;
 
+import com.example.expensemanager.utils.Formatters;
+import com.google.gson.annotations.JsonAdapter;
+
 import java.io.Serializable;
-import java.text.NumberFormat;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 import java.util.UUID;
 
+@JsonAdapter(SettlementAdapter.class)
 public class Settlement implements Serializable {
     private String id;
     private Date date;
     private List<SettlementItem> settlements;
-    private double totalAmount;
+    private long totalAmountCents;
+    private String currency;
     private String description;
 
     // Empty constructor for GSON
     public Settlement() {
         this.id = UUID.randomUUID().toString();
         this.date = new Date();
+        this.currency = Money.DEFAULT_CURRENCY;
     }
 
     public Settlement(Date date, List<SettlementItem> settlements, String description) {
         this.id = UUID.randomUUID().toString();
         this.date = date;
         this.settlements = settlements;
-        this.totalAmount = calculateTotal(settlements);
+        this.totalAmountCents = calculateTotal(settlements);
+        this.currency = Money.DEFAULT_CURRENCY;
         this.description = description;
     }
 
-    private double calculateTotal(List<SettlementItem> items) {
-        double total = 0;
+    // Used when reading stored settlements; a missing id gets a fresh one
+    public Settlement(String id, Date date, List<SettlementItem> settlements, String description) {
+        this.id = id != null ? id : UUID.randomUUID().toString();
+        this.date = date;
+        this.settlements = settlements;
+        this.totalAmountCents = calculateTotal(settlements);
+        this.currency = Money.DEFAULT_CURRENCY;
+        this.description = description;
+    }
+
+    private long calculateTotal(List<SettlementItem> items) {
+        long total = 0;
         if (items != null) {
             for (SettlementItem item : items) {
-                total += item.getAmount();
+                total = Money.add(total, item.getAmountCents());
             }
         }
         return total;
@@ -51,28 +65,29 @@ public class Settlement implements Serializable {
     public List<SettlementItem> getSettlements() { return settlements; }
     public void setSettlements(List<SettlementItem> settlements) {
         this.settlements = settlements;
-        this.totalAmount = calculateTotal(settlements);
+        this.totalAmountCents = calculateTotal(settlements);
     }
 
-    public double getTotalAmount() { return totalAmount; }
-    public void setTotalAmount(double totalAmount) { this.totalAmount = totalAmount; }
+    public long getTotalAmountCents() { return totalAmountCents; }
+    public void setTotalAmountCents(long totalAmountCents) { this.totalAmountCents = totalAmountCents; }
+
+    public String getCurrency() { return currency != null ? currency : Money.DEFAULT_CURRENCY; }
+    public void setCurrency(String currency) { this.currency = currency; }
 
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
 
     public String getFormattedDate() {
-        if (date == null) return "";
-        SimpleDateFormat sdf = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
-        return sdf.format(date);
+        return Formatters.formatDate(date);
     }
 
     public String getFormattedDetails() {
         StringBuilder details = new StringBuilder();
-        NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.US);
 
         details.append("Settlement Date: ").append(getFormattedDate()).append("\n\n");
         details.append("Description: ").append(description != null ? description : "").append("\n\n");
-        details.append("Total Amount: ").append(currencyFormat.format(totalAmount)).append("\n");
+        details.append("Total Amount: ");
+        Formatters.appendMoney(details, totalAmountCents, getCurrency()).append("\n");
         details.append("Number of Transactions: ").append(settlements != null ? settlements.size() : 0).append("\n\n");
 
         if (settlements != null && !settlements.isEmpty()) {
@@ -83,9 +98,8 @@ public class Settlement implements Serializable {
                         .append(item.getFrom().getName())
                         .append(" → ")
                         .append(item.getTo().getName())
-                        .append(": ")
-                        .append(currencyFormat.format(item.getAmount()))
-                        .append("\n");
+                        .append(": ");
+                Formatters.appendMoney(details, item.getAmountCents(), getCurrency()).append("\n");
             }
         }
 
@@ -93,10 +107,8 @@ public class Settlement implements Serializable {
     }
 
     public String getShortSummary() {
-        NumberFormat currencyFormat = NumberFormat.getCurrencyInstance(Locale.getDefault());
-        return String.format("%s - %d transactions - %s",
-                getFormattedDate(),
-                settlements != null ? settlements.size() : 0,
-                currencyFormat.format(totalAmount));
+        return getFormattedDate() + " - " + (settlements != null ? settlements.size() : 0)
+                + " transactions - "
+                + Formatters.formatMoney(totalAmountCents, getCurrency());
     }
 }
\ No newline at end of file
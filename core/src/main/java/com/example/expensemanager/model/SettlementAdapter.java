@@ -0,0 +1,116 @@
+package com.example.expensemanager.model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Hand-written JSON form of a Settlement. Reading also accepts the older format with a
+ * double "totalAmount".
+ */
+public class SettlementAdapter extends TypeAdapter<Settlement> {
+    private final SettlementItemAdapter itemAdapter = new SettlementItemAdapter();
+
+    @Override
+    public void write(JsonWriter out, Settlement settlement) throws IOException {
+        if (settlement == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(settlement.getId());
+        out.name("date");
+        JsonDates.write(out, settlement.getDate());
+        out.name("settlements");
+        List<SettlementItem> items = settlement.getSettlements();
+        if (items == null) {
+            out.nullValue();
+        } else {
+            out.beginArray();
+            for (SettlementItem item : items) {
+                itemAdapter.write(out, item);
+            }
+            out.endArray();
+        }
+        out.name("totalAmountCents").value(settlement.getTotalAmountCents());
+        out.name("currency").value(settlement.getCurrency());
+        out.name("description").value(settlement.getDescription());
+        out.endObject();
+    }
+
+    @Override
+    public Settlement read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String id = null;
+        Date date = null;
+        String currency = null;
+        String description = null;
+        List<SettlementItem> items = null;
+        boolean hasTotal = false;
+        long totalCents = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "id":
+                    id = in.nextString();
+                    break;
+                case "date":
+                    date = JsonDates.read(in);
+                    break;
+                case "settlements":
+                    items = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        SettlementItem item = itemAdapter.read(in);
+                        if (item != null) {
+                            items.add(item);
+                        }
+                    }
+                    in.endArray();
+                    break;
+                case "totalAmountCents":
+                    hasTotal = true;
+                    totalCents = in.nextLong();
+                    break;
+                case "totalAmount":
+                    hasTotal = true;
+                    totalCents = Money.fromDouble(in.nextDouble());
+                    break;
+                case "currency":
+                    currency = in.nextString();
+                    break;
+                case "description":
+                    description = in.nextString();
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        Settlement settlement = new Settlement(id, date, items, description);
+        if (currency != null) {
+            settlement.setCurrency(currency);
+        }
+        if (hasTotal) {
+            // Keep the stored total rather than the one recomputed from the items
+            settlement.setTotalAmountCents(totalCents);
+        }
+        return settlement;
+    }
+}
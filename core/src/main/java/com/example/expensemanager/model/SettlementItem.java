@@ -1,21 +1,25 @@
 package com.example.expensemanager.model;
 
+import com.example.expensemanager.utils.Formatters;
+import com.google.gson.annotations.JsonAdapter;
+
 import java.io.Serializable;
 
+@JsonAdapter(SettlementItemAdapter.class)
 public class SettlementItem implements Serializable {
     private Person from;
     private Person to;
-    private double amount;
+    private long amountCents;
     private boolean settled;
 
     // Empty constructor for GSON
     public SettlementItem() {
     }
 
-    public SettlementItem(Person from, Person to, double amount) {
+    public SettlementItem(Person from, Person to, long amountCents) {
         this.from = from;
         this.to = to;
-        this.amount = amount;
+        this.amountCents = amountCents;
         this.settled = false;
     }
 
@@ -26,17 +30,19 @@ public class SettlementItem implements Serializable {
     public Person getTo() { return to; }
     public void setTo(Person to) { this.to = to; }
 
-    public double getAmount() { return amount; }
-    public void setAmount(double amount) { this.amount = amount; }
+    public long getAmountCents() { return amountCents; }
+    public void setAmountCents(long amountCents) { this.amountCents = amountCents; }
 
     public boolean isSettled() { return settled; }
     public void setSettled(boolean settled) { this.settled = settled; }
 
     @Override
     public String toString() {
-        return String.format("%s → %s: $%.2f",
-                from != null ? from.getName() : "Unknown",
-                to != null ? to.getName() : "Unknown",
-                amount);
+        StringBuilder text = new StringBuilder()
+                .append(from != null ? from.getName() : "Unknown")
+                .append(" → ")
+                .append(to != null ? to.getName() : "Unknown")
+                .append(": ");
+        return Formatters.appendMoney(text, amountCents, Money.DEFAULT_CURRENCY).toString();
     }
 }
\ No newline at end of file
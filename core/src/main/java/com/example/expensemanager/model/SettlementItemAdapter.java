@@ -0,0 +1,70 @@
+package com.example.expensemanager.model;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Hand-written JSON form of a SettlementItem; both people are written as ids. Reading
+ * also accepts the older format with a double "amount" and embedded people.
+ */
+public class SettlementItemAdapter extends TypeAdapter<SettlementItem> {
+
+    @Override
+    public void write(JsonWriter out, SettlementItem item) throws IOException {
+        if (item == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("from");
+        PersonAdapter.writeReference(out, item.getFrom());
+        out.name("to");
+        PersonAdapter.writeReference(out, item.getTo());
+        out.name("amountCents").value(item.getAmountCents());
+        out.name("settled").value(item.isSettled());
+        out.endObject();
+    }
+
+    @Override
+    public SettlementItem read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        SettlementItem item = new SettlementItem();
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "from":
+                    item.setFrom(PersonAdapter.readReference(in));
+                    break;
+                case "to":
+                    item.setTo(PersonAdapter.readReference(in));
+                    break;
+                case "amountCents":
+                    item.setAmountCents(in.nextLong());
+                    break;
+                case "amount":
+                    item.setAmountCents(Money.fromDouble(in.nextDouble()));
+                    break;
+                case "settled":
+                    item.setSettled(in.nextBoolean());
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return item;
+    }
+}
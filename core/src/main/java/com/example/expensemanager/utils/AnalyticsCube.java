@@ -0,0 +1,227 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Expense;
+import com.example.expensemanager.model.Money;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+
+/**
+ * Spending pre-aggregated by category, payer and time bucket (day, week and month),
+ * covering current and archived expenses alike. DataStore adds and removes expenses as
+ * they change, so questions like "monthly spend per category over the last two years"
+ * only touch the buckets in range instead of rescanning the archive.
+ *
+ * Buckets start at local midnight, on the first day of the week and on the first of the
+ * month in the time zone the cube was created with. Ending a cycle only moves expenses
+ * to the archive, so it leaves the cube unchanged.
+ */
+public final class AnalyticsCube {
+
+    public enum Granularity {
+        DAY,
+        WEEK,
+        MONTH
+    }
+
+    // What the cells of each bucket are grouped by in a query result
+    public enum Dimension {
+        NONE,
+        CATEGORY,
+        PERSON
+    }
+
+    /** Count and total for one bucket and, unless grouped by NONE, one category or payer. */
+    public static final class Rollup {
+        private final long bucketStartMillis;
+        private final String key;
+        private final int count;
+        private final long totalCents;
+
+        Rollup(long bucketStartMillis, String key, int count, long totalCents) {
+            this.bucketStartMillis = bucketStartMillis;
+            this.key = key;
+            this.count = count;
+            this.totalCents = totalCents;
+        }
+
+        public long getBucketStartMillis() { return bucketStartMillis; }
+        // Category or person id, or null when not grouped
+        public String getKey() { return key; }
+        public int getCount() { return count; }
+        public long getTotalCents() { return totalCents; }
+    }
+
+    // Sum for one category and payer within one bucket
+    private static final class Cell {
+        final String category;
+        final String personId;
+        int count;
+        long totalCents;
+
+        Cell(String category, String personId) {
+            this.category = category;
+            this.personId = personId;
+        }
+    }
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final Map<Granularity, TreeMap<Long, Map<String, Cell>>> buckets =
+            new EnumMap<>(Granularity.class);
+    private final TimeZone timeZone;
+    private final Calendar calendar;
+    // Bucket starts per local day, indexed by Granularity.ordinal(); Calendar math is slow
+    // and an archive only spans a few thousand days
+    private final Map<Long, long[]> startsByDay = new HashMap<>();
+
+    public AnalyticsCube() {
+        this(TimeZone.getDefault());
+    }
+
+    public AnalyticsCube(TimeZone timeZone) {
+        this.timeZone = timeZone;
+        this.calendar = Calendar.getInstance(timeZone);
+        for (Granularity granularity : Granularity.values()) {
+            buckets.put(granularity, new TreeMap<>());
+        }
+    }
+
+    public synchronized void add(Expense expense) {
+        apply(expense, 1);
+    }
+
+    public synchronized void remove(Expense expense) {
+        apply(expense, -1);
+    }
+
+    public synchronized void addAll(List<Expense> expenses) {
+        for (Expense expense : expenses) {
+            apply(expense, 1);
+        }
+    }
+
+    public synchronized void clear() {
+        for (TreeMap<Long, Map<String, Cell>> byBucket : buckets.values()) {
+            byBucket.clear();
+        }
+        startsByDay.clear();
+    }
+
+    private void apply(Expense expense, int count) {
+        long dateMillis = expense.getDate() != null ? expense.getDate().getTime() : 0;
+        String category = expense.getCategory();
+        String personId = expense.getPaidBy().getId();
+        String cellKey = category + '\u001F' + personId;
+        long cents = count > 0 ? expense.getAmountCents() : -expense.getAmountCents();
+        long[] starts = bucketStarts(dateMillis);
+
+        for (Granularity granularity : Granularity.values()) {
+            TreeMap<Long, Map<String, Cell>> byBucket = buckets.get(granularity);
+            long bucket = starts[granularity.ordinal()];
+            Map<String, Cell> cells = byBucket.get(bucket);
+            if (cells == null) {
+                if (count < 0) continue;
+                cells = new HashMap<>();
+                byBucket.put(bucket, cells);
+            }
+            Cell cell = cells.get(cellKey);
+            if (cell == null) {
+                if (count < 0) continue;
+                cell = new Cell(category, personId);
+                cells.put(cellKey, cell);
+            }
+            cell.count += count;
+            cell.totalCents = Money.add(cell.totalCents, cents);
+            if (cell.count <= 0) {
+                cells.remove(cellKey);
+                if (cells.isEmpty()) {
+                    byBucket.remove(bucket);
+                }
+            }
+        }
+    }
+
+    private long[] bucketStarts(long timeMillis) {
+        long localDay = Math.floorDiv(timeMillis + timeZone.getOffset(timeMillis), DAY_MILLIS);
+        long[] starts = startsByDay.get(localDay);
+        if (starts == null) {
+            starts = new long[Granularity.values().length];
+            for (Granularity granularity : Granularity.values()) {
+                starts[granularity.ordinal()] = bucketStart(granularity, timeMillis);
+            }
+            startsByDay.put(localDay, starts);
+        }
+        return starts;
+    }
+
+    // Start of the bucket holding the given time
+    public synchronized long bucketStart(Granularity granularity, long timeMillis) {
+        calendar.setTimeInMillis(timeMillis);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        if (granularity == Granularity.WEEK) {
+            int back = calendar.get(Calendar.DAY_OF_WEEK) - calendar.getFirstDayOfWeek();
+            calendar.add(Calendar.DAY_OF_MONTH, -(back < 0 ? back + 7 : back));
+        } else if (granularity == Granularity.MONTH) {
+            calendar.set(Calendar.DAY_OF_MONTH, 1);
+        }
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Counts and totals for every bucket overlapping [fromMillis, toMillis], oldest first,
+     * grouped by the dimension. A non-null category or personId keeps only those cells.
+     * Buckets with no matching expenses are left out.
+     */
+    public synchronized List<Rollup> query(Granularity granularity, long fromMillis, long toMillis,
+                                           Dimension groupBy, String category, String personId) {
+        List<Rollup> result = new ArrayList<>();
+        if (fromMillis > toMillis) {
+            return result;
+        }
+        long first = bucketStart(granularity, fromMillis);
+        Map<Long, Map<String, Cell>> range = buckets.get(granularity).subMap(first, true, toMillis, true);
+
+        for (Map.Entry<Long, Map<String, Cell>> bucket : range.entrySet()) {
+            Map<String, long[]> groups = new LinkedHashMap<>();
+            for (Cell cell : bucket.getValue().values()) {
+                if (category != null && !category.equals(cell.category)) continue;
+                if (personId != null && !personId.equals(cell.personId)) continue;
+                String key = groupBy == Dimension.CATEGORY ? cell.category
+                        : groupBy == Dimension.PERSON ? cell.personId : null;
+                long[] sums = groups.get(key);
+                if (sums == null) {
+                    sums = new long[2];
+                    groups.put(key, sums);
+                }
+                sums[0] += cell.count;
+                sums[1] = Money.add(sums[1], cell.totalCents);
+            }
+            for (Map.Entry<String, long[]> group : groups.entrySet()) {
+                long[] sums = group.getValue();
+                result.add(new Rollup(bucket.getKey(), group.getKey(), (int) sums[0], sums[1]));
+            }
+        }
+        return result;
+    }
+
+    // Totals per category for every bucket overlapping the range
+    public synchronized Map<String, Long> categoryTotals(Granularity granularity, long fromMillis, long toMillis) {
+        Map<String, Long> totals = new LinkedHashMap<>();
+        for (Rollup rollup : query(granularity, fromMillis, toMillis, Dimension.CATEGORY, null, null)) {
+            Long total = totals.get(rollup.getKey());
+            totals.put(rollup.getKey(), Money.add(total != null ? total : 0, rollup.getTotalCents()));
+        }
+        return totals;
+    }
+}
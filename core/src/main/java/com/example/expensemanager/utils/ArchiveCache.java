@@ -0,0 +1,90 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Expense;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Archive segments read recently, least recently used first out. The bound is a number
+ * of expenses rather than of segments, since one busy cycle can outweigh many quiet
+ * ones; the segment read last is always kept, however large. Segments are immutable,
+ * so a cached list is handed out as is.
+ */
+final class ArchiveCache {
+
+    interface Loader {
+        List<Expense> load(String settlementId);
+    }
+
+    private final int maxExpenses;
+    private final Loader loader;
+    // Access order: iteration starts at the least recently used segment
+    private final LinkedHashMap<String, List<Expense>> segments = new LinkedHashMap<>(16, 0.75f, true);
+    private int cachedExpenses;
+    // Bumped by clear(), so a load that raced with it is not cached
+    private int generation;
+
+    ArchiveCache(int maxExpenses, Loader loader) {
+        this.maxExpenses = maxExpenses;
+        this.loader = loader;
+    }
+
+    // Reads the segment on a miss, outside the lock, so other segments stay available.
+    // A segment that fails to load is not cached, and the next call reads it again.
+    List<Expense> get(String settlementId) {
+        int loadGeneration;
+        synchronized (this) {
+            List<Expense> cached = segments.get(settlementId);
+            if (cached != null) {
+                Metrics.ARCHIVE_CACHE_HITS.add(1);
+                return cached;
+            }
+            loadGeneration = generation;
+        }
+        Metrics.ARCHIVE_CACHE_MISSES.add(1);
+        List<Expense> loaded = Collections.unmodifiableList(loader.load(settlementId));
+        synchronized (this) {
+            if (loadGeneration != generation) {
+                return loaded;
+            }
+            // Another reader may have loaded it meanwhile; either copy will do
+            List<Expense> cached = segments.get(settlementId);
+            if (cached != null) {
+                return cached;
+            }
+            insert(settlementId, loaded);
+            return loaded;
+        }
+    }
+
+    // For a segment that was just written and is the likeliest to be read next
+    synchronized void put(String settlementId, List<Expense> segment) {
+        List<Expense> previous = segments.remove(settlementId);
+        if (previous != null) {
+            cachedExpenses -= previous.size();
+        }
+        insert(settlementId, Collections.unmodifiableList(segment));
+    }
+
+    synchronized void clear() {
+        segments.clear();
+        cachedExpenses = 0;
+        generation++;
+        Metrics.ARCHIVE_CACHED_EXPENSES.set(0);
+    }
+
+    private void insert(String settlementId, List<Expense> segment) {
+        segments.put(settlementId, segment);
+        cachedExpenses += segment.size();
+        Iterator<Map.Entry<String, List<Expense>>> eldest = segments.entrySet().iterator();
+        while (cachedExpenses > maxExpenses && segments.size() > 1) {
+            cachedExpenses -= eldest.next().getValue().size();
+            eldest.remove();
+        }
+        Metrics.ARCHIVE_CACHED_EXPENSES.set(cachedExpenses);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.expensemanager.utils;
+
+/**
+ * Binary max-heap of indices into a balance array, ordered by the size of the balance
+ * on one side: creditors by how much they are owed, debtors by how much they owe.
+ * Ties go to the lower index so results are deterministic. The heap holds plain ints
+ * and reads the amounts in place, so nothing is boxed and the balances are not copied.
+ */
+final class BalanceHeap {
+    private final long[] balances;
+    private final boolean debtors;
+    private final int[] heap;
+    private int size;
+
+    BalanceHeap(long[] balances, boolean debtors, int capacity) {
+        this.balances = balances;
+        this.debtors = debtors;
+        this.heap = new int[capacity];
+    }
+
+    // Adds an index without restoring heap order; call heapify() once after the last add
+    void add(int index) {
+        heap[size++] = index;
+    }
+
+    void heapify() {
+        for (int i = (size >>> 1) - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int peek() {
+        return heap[0];
+    }
+
+    void pop() {
+        heap[0] = heap[--size];
+        if (size > 0) {
+            siftDown(0);
+        }
+    }
+
+    // Call after the balance of the top index has shrunk but is not yet zero
+    void topChanged() {
+        siftDown(0);
+    }
+
+    private long magnitude(int index) {
+        return debtors ? -balances[index] : balances[index];
+    }
+
+    private boolean before(int a, int b) {
+        long ma = magnitude(a);
+        long mb = magnitude(b);
+        return ma > mb || (ma == mb && a < b);
+    }
+
+    private void siftDown(int position) {
+        int index = heap[position];
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            int right = child + 1;
+            if (right < size && before(heap[right], heap[child])) {
+                child = right;
+            }
+            if (!before(heap[child], index)) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = index;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Person;
+
+import java.util.List;
+
+/**
+ * Balance of each person against their share, in cents. Positive means the person
+ * should receive money, negative means they should pay. Stored as parallel arrays so
+ * reading a balance never boxes; the arrays are never exposed, so instances are immutable.
+ */
+public final class Balances {
+    private final Person[] people;
+    private final long[] cents;
+
+    Balances(Person[] people, long[] cents) {
+        this.people = people;
+        this.cents = cents;
+    }
+
+    public static Balances empty() {
+        return new Balances(new Person[0], new long[0]);
+    }
+
+    public int size() {
+        return people.length;
+    }
+
+    public boolean isEmpty() {
+        return people.length == 0;
+    }
+
+    public Person getPerson(int index) {
+        return people[index];
+    }
+
+    public long getCents(int index) {
+        return cents[index];
+    }
+
+    // Copy of the raw balances for algorithms that need to work on them
+    long[] copyCents() {
+        return cents.clone();
+    }
+
+    public boolean isSettled() {
+        for (long balance : cents) {
+            if (balance != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static Balances of(List<Person> people, long[] cents) {
+        return new Balances(people.toArray(new Person[0]), cents);
+    }
+}
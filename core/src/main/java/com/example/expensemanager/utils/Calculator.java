@@ -0,0 +1,139 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Money;
+import com.example.expensemanager.model.Person;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Calculator {
+
+    public enum Strategy {
+        // Largest debt against largest credit; fast, but may use more transfers than needed
+        GREEDY,
+        // Fewest transfers; see SettlementSolver
+        MINIMUM_TRANSFERS
+    }
+
+    // Balances against an equal split of totalCents, using each person's total paid
+    public static Balances calculateBalances(List<Person> people, long totalCents) {
+        long[] paidCents = new long[people.size()];
+        for (int i = 0; i < paidCents.length; i++) {
+            paidCents[i] = people.get(i).getTotalPaidCents();
+        }
+        return calculateBalances(people, paidCents, totalCents);
+    }
+
+    // paidCents[i] is what people.get(i) paid. Leftover cents of the split are assigned
+    // in list order, so balances always sum to exactly zero.
+    public static Balances calculateBalances(List<Person> people, long[] paidCents, long totalCents) {
+        if (people.isEmpty()) {
+            return Balances.empty();
+        }
+        long start = Metrics.BALANCE_COMPUTE.start();
+        long[] balances = new long[people.size()];
+
+        for (int i = 0; i < balances.length; i++) {
+            balances[i] = Money.subtract(paidCents[i], Money.share(totalCents, balances.length, i));
+        }
+
+        Balances result = Balances.of(people, balances);
+        Metrics.BALANCE_COMPUTE.stop(start, balances.length);
+        return result;
+    }
+
+    public static List<Settlement> getSettlementSuggestions(Balances balances) {
+        return getSettlementSuggestions(balances, Strategy.MINIMUM_TRANSFERS);
+    }
+
+    public static List<Settlement> getSettlementSuggestions(Balances balances, Strategy strategy) {
+        long start = Metrics.SETTLEMENT_SOLVE.start();
+        List<Settlement> settlements;
+        switch (strategy) {
+            case GREEDY:
+                settlements = greedySettlements(balances);
+                break;
+            case MINIMUM_TRANSFERS:
+                settlements = SettlementSolver.solve(balances);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown strategy: " + strategy);
+        }
+        Metrics.SETTLEMENT_SOLVE.stop(start, balances.size());
+        return settlements;
+    }
+
+    private static List<Settlement> greedySettlements(Balances balances) {
+        List<Settlement> settlements = new ArrayList<>();
+
+        // Work on a copy so the caller's balances stay intact for display
+        long[] remaining = balances.copyCents();
+        int[] everyone = new int[remaining.length];
+        for (int i = 0; i < everyone.length; i++) {
+            everyone[i] = i;
+        }
+        settleGreedy(balances, remaining, everyone, settlements);
+        return settlements;
+    }
+
+    // Repeatedly settles the largest debt against the largest credit among `members`,
+    // updating `remaining` in place. Two index heaps keep each step O(log n).
+    static void settleGreedy(Balances balances, long[] remaining, int[] members, List<Settlement> out) {
+        BalanceHeap debtors = new BalanceHeap(remaining, true, members.length);
+        BalanceHeap creditors = new BalanceHeap(remaining, false, members.length);
+        for (int index : members) {
+            if (remaining[index] < 0) {
+                debtors.add(index);
+            } else if (remaining[index] > 0) {
+                creditors.add(index);
+            }
+        }
+        debtors.heapify();
+        creditors.heapify();
+
+        while (!debtors.isEmpty() && !creditors.isEmpty()) {
+            int debtor = debtors.peek();
+            int creditor = creditors.peek();
+
+            long amount = Math.min(-remaining[debtor], remaining[creditor]);
+            out.add(new Settlement(balances.getPerson(debtor), balances.getPerson(creditor), amount));
+
+            remaining[debtor] += amount;
+            remaining[creditor] -= amount;
+
+            if (remaining[debtor] == 0) {
+                debtors.pop();
+            } else {
+                debtors.topChanged();
+            }
+            if (remaining[creditor] == 0) {
+                creditors.pop();
+            } else {
+                creditors.topChanged();
+            }
+        }
+    }
+
+    public static class Settlement {
+        private Person from;
+        private Person to;
+        private long amountCents;
+
+        public Settlement(Person from, Person to, long amountCents) {
+            this.from = from;
+            this.to = to;
+            this.amountCents = amountCents;
+        }
+
+        public Person getFrom() { return from; }
+        public Person getTo() { return to; }
+        public long getAmountCents() { return amountCents; }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder()
+                    .append(from.getName()).append(" → ").append(to.getName()).append(": ");
+            return Formatters.appendMoney(text, amountCents, Money.DEFAULT_CURRENCY).toString();
+        }
+    }
+}
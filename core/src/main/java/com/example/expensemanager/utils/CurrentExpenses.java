@@ -0,0 +1,89 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Expense;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The current cycle's expenses with everything DataStore derives from them: the list in
+ * the order they were added, lookups by id, the ledger's running totals and the page
+ * index. Every change goes through here, so the four never drift apart.
+ *
+ * Writers are serialized by DataStore's write lock. Lookups, the ledger and the index
+ * may be read from any thread; the list is only for writers.
+ */
+final class CurrentExpenses {
+    private final List<Expense> list = new ArrayList<>();
+    private final Map<String, Expense> byId = new ConcurrentHashMap<>();
+    private final Ledger ledger = new Ledger();
+    private final ExpenseIndex index = new ExpenseIndex();
+
+    Ledger ledger() {
+        return ledger;
+    }
+
+    ExpenseIndex index() {
+        return index;
+    }
+
+    // Live, in the order expenses were added
+    List<Expense> list() {
+        return list;
+    }
+
+    Expense get(String id) {
+        // Concurrent maps reject null keys
+        return id != null ? byId.get(id) : null;
+    }
+
+    void add(Expense expense) {
+        list.add(expense);
+        byId.put(expense.getId(), expense);
+        index.add(expense);
+        ledger.add(expense);
+    }
+
+    void addAll(List<Expense> expenses) {
+        for (Expense expense : expenses) {
+            add(expense);
+        }
+    }
+
+    // Takes the expense out and returns it; null if there is none with that id
+    Expense remove(String id) {
+        Expense expense = id != null ? byId.remove(id) : null;
+        if (expense == null) {
+            return null;
+        }
+        ledger.remove(expense);
+        index.remove(expense);
+        list.remove(expense);
+        return expense;
+    }
+
+    // Takes out everything the person paid and returns it
+    List<Expense> removePaidBy(String personId) {
+        List<Expense> removed = index.removePerson(personId);
+        if (removed.isEmpty()) {
+            return removed;
+        }
+        // Expense has identity equality, so the set makes removeAll a single pass
+        list.removeAll(new HashSet<>(removed));
+        for (Expense expense : removed) {
+            byId.remove(expense.getId());
+            ledger.remove(expense);
+        }
+        return removed;
+    }
+
+    void clear() {
+        list.clear();
+        byId.clear();
+        index.clear();
+        ledger.clear();
+    }
+}
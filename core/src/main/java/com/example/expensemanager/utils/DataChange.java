@@ -0,0 +1,48 @@
+package com.example.expensemanager.utils;
+
+/**
+ * One mutation published by DataStore. Versions increase by one per change, so a screen
+ * that remembers the version it last showed can tell whether anything happened since.
+ */
+public final class DataChange {
+
+    public enum Type {
+        PERSON_ADDED,
+        PERSON_UPDATED,
+        // The person's current expenses are removed with them
+        PERSON_REMOVED,
+        EXPENSE_ADDED,
+        EXPENSE_REMOVED,
+        SETTLEMENT_ADDED,
+        SETTLEMENT_REMOVED,
+        // Current expenses moved to the archive; the id is the new settlement's
+        CYCLE_RESET,
+        CLEARED,
+        // A unit of work failed to reach disk and everything was reloaded from storage
+        RELOADED
+    }
+
+    private final Type type;
+    private final long version;
+    private final String id;
+
+    DataChange(Type type, long version, String id) {
+        this.type = type;
+        this.version = version;
+        this.id = id;
+    }
+
+    public Type getType() { return type; }
+    public long getVersion() { return version; }
+    // Id of the person, expense or settlement involved; null for CLEARED and RELOADED
+    public String getId() { return id; }
+
+    public boolean affectsExpenses() {
+        return type != Type.SETTLEMENT_ADDED && type != Type.SETTLEMENT_REMOVED;
+    }
+
+    public boolean affectsSettlements() {
+        return type == Type.SETTLEMENT_ADDED || type == Type.SETTLEMENT_REMOVED
+                || type == Type.CYCLE_RESET || type == Type.CLEARED || type == Type.RELOADED;
+    }
+}
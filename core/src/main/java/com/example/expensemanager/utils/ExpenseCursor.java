@@ -0,0 +1,45 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Expense;
+
+/**
+ * Position in the expense history: newest first, and by id among expenses with the
+ * same date. A page starts right after its cursor, so inserts and deletes elsewhere
+ * never shift it the way an offset would.
+ */
+public final class ExpenseCursor implements Comparable<ExpenseCursor> {
+    private final long dateMillis;
+    private final String id;
+
+    public ExpenseCursor(long dateMillis, String id) {
+        this.dateMillis = dateMillis;
+        this.id = id;
+    }
+
+    public static ExpenseCursor of(Expense expense) {
+        long dateMillis = expense.getDate() != null ? expense.getDate().getTime() : 0;
+        return new ExpenseCursor(dateMillis, expense.getId());
+    }
+
+    public long getDateMillis() { return dateMillis; }
+    public String getId() { return id; }
+
+    @Override
+    public int compareTo(ExpenseCursor other) {
+        int byDate = Long.compare(other.dateMillis, dateMillis);
+        return byDate != 0 ? byDate : id.compareTo(other.id);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ExpenseCursor cursor = (ExpenseCursor) o;
+        return dateMillis == cursor.dateMillis && id.equals(cursor.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(dateMillis) + id.hashCode();
+    }
+}
@@ -0,0 +1,322 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Expense;
+import com.example.expensemanager.model.Money;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Current-cycle expenses ordered by date, with one date-ordered bucket per payer and
+ * per category. DataStore updates it on every mutation, so a person's expenses, how
+ * many there are, or a page of history are found without walking or copying the
+ * expense list.
+ *
+ * A page only walks the buckets of the payers or categories it asks for, within its
+ * date range; amount and text are checked on what is left. Buckets keep running
+ * totals, so a query on payers or categories alone is counted without a walk.
+ *
+ * Screens read pages from worker threads, so every method holds the index's lock.
+ */
+final class ExpenseIndex {
+
+    // An expense and, once a text query has needed it, its normalized description
+    private static final class Entry {
+        final Expense expense;
+        private String normalizedDescription;
+
+        Entry(Expense expense) {
+            this.expense = expense;
+        }
+
+        String normalizedDescription() {
+            if (normalizedDescription == null) {
+                normalizedDescription = NameIndex.normalize(expense.getDescription());
+            }
+            return normalizedDescription;
+        }
+    }
+
+    // Expenses sharing a payer or a category, newest first, and what they add up to
+    private static final class Bucket {
+        final TreeMap<ExpenseCursor, Entry> entries = new TreeMap<>();
+        long totalCents;
+
+        void add(ExpenseCursor cursor, Entry entry) {
+            entries.put(cursor, entry);
+            totalCents = Money.add(totalCents, entry.expense.getAmountCents());
+        }
+
+        void remove(ExpenseCursor cursor, Entry entry) {
+            if (entries.remove(cursor) != null) {
+                totalCents = Money.subtract(totalCents, entry.expense.getAmountCents());
+            }
+        }
+    }
+
+    private final TreeMap<ExpenseCursor, Entry> byDate = new TreeMap<>();
+    private final Map<String, Bucket> byPerson = new HashMap<>();
+    // Null is a key of its own, for expenses without a category
+    private final Map<String, Bucket> byCategory = new HashMap<>();
+    private long totalCents;
+
+    synchronized void add(Expense expense) {
+        ExpenseCursor cursor = ExpenseCursor.of(expense);
+        Entry entry = new Entry(expense);
+        byDate.put(cursor, entry);
+        bucket(byPerson, expense.getPaidBy().getId()).add(cursor, entry);
+        bucket(byCategory, expense.getCategory()).add(cursor, entry);
+        totalCents = Money.add(totalCents, expense.getAmountCents());
+    }
+
+    synchronized void remove(Expense expense) {
+        ExpenseCursor cursor = ExpenseCursor.of(expense);
+        Entry entry = byDate.remove(cursor);
+        if (entry == null) {
+            return;
+        }
+        removeFrom(byPerson, entry.expense.getPaidBy().getId(), cursor, entry);
+        removeFrom(byCategory, entry.expense.getCategory(), cursor, entry);
+        totalCents = Money.subtract(totalCents, entry.expense.getAmountCents());
+    }
+
+    // Drops everything the person paid and returns it
+    synchronized List<Expense> removePerson(String personId) {
+        Bucket bucket = byPerson.remove(personId);
+        if (bucket == null) {
+            return new ArrayList<>();
+        }
+        List<Expense> removed = new ArrayList<>(bucket.entries.size());
+        for (Map.Entry<ExpenseCursor, Entry> e : bucket.entries.entrySet()) {
+            Entry entry = e.getValue();
+            byDate.remove(e.getKey());
+            removeFrom(byCategory, entry.expense.getCategory(), e.getKey(), entry);
+            totalCents = Money.subtract(totalCents, entry.expense.getAmountCents());
+            removed.add(entry.expense);
+        }
+        return removed;
+    }
+
+    // The person's expenses, newest first
+    synchronized List<Expense> get(String personId) {
+        Bucket bucket = byPerson.get(personId);
+        return bucket != null ? expensesOf(bucket.entries.values()) : new ArrayList<>();
+    }
+
+    synchronized int count(String personId) {
+        Bucket bucket = byPerson.get(personId);
+        return bucket != null ? bucket.entries.size() : 0;
+    }
+
+    synchronized int size() {
+        return byDate.size();
+    }
+
+    // Up to limit matches after the cursor (from the newest if it is null). The first
+    // page also counts and totals every match: from the bucket totals when the query is
+    // on payers or categories alone, otherwise by walking on past the page.
+    synchronized ExpensePage page(ExpenseQuery query, ExpenseCursor after, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        List<Bucket> buckets = narrowestBuckets(query);
+        boolean countedByBuckets = !query.hasDateRange() && !query.hasAmountRange() && !query.hasText()
+                && (query.getPersonIds().isEmpty() || query.getCategories().isEmpty());
+        boolean walkAll = after == null && !countedByBuckets;
+
+        List<NavigableMap<ExpenseCursor, Entry>> views = new ArrayList<>();
+        if (buckets == null) {
+            views.add(restrict(byDate, query, after));
+        } else {
+            for (Bucket bucket : buckets) {
+                views.add(restrict(bucket.entries, query, after));
+            }
+        }
+
+        List<Expense> expenses = new ArrayList<>(Math.min(limit, byDate.size()));
+        ExpenseCursor next = null;
+        int count = 0;
+        long total = 0;
+        Iterator<Map.Entry<ExpenseCursor, Entry>> walk = merge(views);
+        while (walk.hasNext()) {
+            Entry entry = walk.next().getValue();
+            Expense expense = entry.expense;
+            if (!query.matches(expense, query.hasText() ? entry.normalizedDescription() : null)) {
+                continue;
+            }
+            if (expenses.size() < limit) {
+                expenses.add(expense);
+            } else if (next == null) {
+                next = ExpenseCursor.of(expenses.get(limit - 1));
+                if (!walkAll) {
+                    break;
+                }
+            }
+            count++;
+            total = Money.add(total, expense.getAmountCents());
+        }
+
+        if (after == null && countedByBuckets) {
+            if (buckets == null) {
+                count = byDate.size();
+                total = totalCents;
+            } else {
+                count = 0;
+                total = 0;
+                for (Bucket bucket : buckets) {
+                    count += bucket.entries.size();
+                    total = Money.add(total, bucket.totalCents);
+                }
+            }
+        }
+        return new ExpensePage(expenses, next, count, total);
+    }
+
+    synchronized void clear() {
+        byDate.clear();
+        byPerson.clear();
+        byCategory.clear();
+        totalCents = 0;
+    }
+
+    // The payer buckets or the category buckets the query asks for, whichever hold fewer
+    // expenses; null if it asks for neither and the whole date order has to be walked
+    private List<Bucket> narrowestBuckets(ExpenseQuery query) {
+        List<Bucket> people = query.getPersonIds().isEmpty() ? null : buckets(byPerson, query.getPersonIds());
+        List<Bucket> categories = query.getCategories().isEmpty() ? null : buckets(byCategory, query.getCategories());
+        if (people == null || categories == null) {
+            return people != null ? people : categories;
+        }
+        return size(people) <= size(categories) ? people : categories;
+    }
+
+    private static List<Bucket> buckets(Map<String, Bucket> index, Collection<String> keys) {
+        List<Bucket> buckets = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Bucket bucket = index.get(key);
+            if (bucket != null) {
+                buckets.add(bucket);
+            }
+        }
+        return buckets;
+    }
+
+    private static int size(List<Bucket> buckets) {
+        int size = 0;
+        for (Bucket bucket : buckets) {
+            size += bucket.entries.size();
+        }
+        return size;
+    }
+
+    // The part of a date-ordered map past the cursor and inside the query's date range.
+    // Newer dates sort first, so the range's end is where the view starts.
+    private static NavigableMap<ExpenseCursor, Entry> restrict(NavigableMap<ExpenseCursor, Entry> map,
+                                                               ExpenseQuery query, ExpenseCursor after) {
+        ExpenseCursor start = after;
+        boolean inclusive = false;
+        if (query.getToMillis() != Long.MAX_VALUE) {
+            // "" sorts before every id, so this is the first cursor on that date
+            ExpenseCursor newest = new ExpenseCursor(query.getToMillis(), "");
+            if (start == null || newest.compareTo(start) > 0) {
+                start = newest;
+                inclusive = true;
+            }
+        }
+        NavigableMap<ExpenseCursor, Entry> view = start != null ? map.tailMap(start, inclusive) : map;
+        if (query.getFromMillis() != Long.MIN_VALUE) {
+            ExpenseCursor tooOld = new ExpenseCursor(query.getFromMillis() - 1, "");
+            if (start != null && tooOld.compareTo(start) <= 0) {
+                return Collections.emptyNavigableMap();
+            }
+            view = view.headMap(tooOld, false);
+        }
+        return view;
+    }
+
+    // Walks several date-ordered views as one, newest first. Payer buckets never share an
+    // expense, and neither do category buckets, so nothing comes out twice.
+    private static Iterator<Map.Entry<ExpenseCursor, Entry>> merge(List<NavigableMap<ExpenseCursor, Entry>> views) {
+        if (views.size() == 1) {
+            return views.get(0).entrySet().iterator();
+        }
+        PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, views.size()));
+        for (NavigableMap<ExpenseCursor, Entry> view : views) {
+            Head head = new Head(view.entrySet().iterator());
+            if (head.advance()) {
+                heads.add(head);
+            }
+        }
+        return new Iterator<Map.Entry<ExpenseCursor, Entry>>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Map.Entry<ExpenseCursor, Entry> next() {
+                Head head = heads.poll();
+                Map.Entry<ExpenseCursor, Entry> current = head.current;
+                if (head.advance()) {
+                    heads.add(head);
+                }
+                return current;
+            }
+        };
+    }
+
+    private static final class Head implements Comparable<Head> {
+        final Iterator<Map.Entry<ExpenseCursor, Entry>> rest;
+        Map.Entry<ExpenseCursor, Entry> current;
+
+        Head(Iterator<Map.Entry<ExpenseCursor, Entry>> rest) {
+            this.rest = rest;
+        }
+
+        boolean advance() {
+            current = rest.hasNext() ? rest.next() : null;
+            return current != null;
+        }
+
+        @Override
+        public int compareTo(Head other) {
+            return current.getKey().compareTo(other.current.getKey());
+        }
+    }
+
+    private static Bucket bucket(Map<String, Bucket> index, String key) {
+        Bucket bucket = index.get(key);
+        if (bucket == null) {
+            bucket = new Bucket();
+            index.put(key, bucket);
+        }
+        return bucket;
+    }
+
+    private static void removeFrom(Map<String, Bucket> index, String key, ExpenseCursor cursor, Entry entry) {
+        Bucket bucket = index.get(key);
+        if (bucket == null) {
+            return;
+        }
+        bucket.remove(cursor, entry);
+        if (bucket.entries.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static List<Expense> expensesOf(Collection<Entry> entries) {
+        List<Expense> expenses = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            expenses.add(entry.expense);
+        }
+        return expenses;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Expense;
+
+import java.util.List;
+
+/**
+ * One page of expenses matching a query, newest first. The first page of a query also
+ * carries the count and total of every match, found in the same pass.
+ */
+public final class ExpensePage {
+    private final List<Expense> expenses;
+    private final ExpenseCursor next;
+    private final int matchCount;
+    private final long matchTotalCents;
+
+    ExpensePage(List<Expense> expenses, ExpenseCursor next, int matchCount, long matchTotalCents) {
+        this.expenses = expenses;
+        this.next = next;
+        this.matchCount = matchCount;
+        this.matchTotalCents = matchTotalCents;
+    }
+
+    public List<Expense> getExpenses() { return expenses; }
+
+    // Where the following page starts; null once the history is exhausted
+    public ExpenseCursor getNext() { return next; }
+
+    public boolean hasMore() { return next != null; }
+
+    // Only filled in on the first page of a query
+    public int getMatchCount() { return matchCount; }
+    public long getMatchTotalCents() { return matchTotalCents; }
+}
@@ -0,0 +1,108 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Expense;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Criteria for filtering expenses. Every criterion that is set has to match; within the
+ * person and category sets any one value is enough. Ranges are inclusive at both ends.
+ * Queries are read from worker threads while pages load, so edit a copy() instead of
+ * changing one that is in use.
+ */
+public class ExpenseQuery {
+    private final Set<String> personIds = new LinkedHashSet<>();
+    private final Set<String> categories = new LinkedHashSet<>();
+    private long fromMillis = Long.MIN_VALUE;
+    private long toMillis = Long.MAX_VALUE;
+    private long minCents = Long.MIN_VALUE;
+    private long maxCents = Long.MAX_VALUE;
+    private String text;
+    private String normalizedText = "";
+
+    public ExpenseQuery copy() {
+        ExpenseQuery copy = new ExpenseQuery();
+        copy.personIds.addAll(personIds);
+        copy.categories.addAll(categories);
+        copy.fromMillis = fromMillis;
+        copy.toMillis = toMillis;
+        copy.minCents = minCents;
+        copy.maxCents = maxCents;
+        copy.text = text;
+        copy.normalizedText = normalizedText;
+        return copy;
+    }
+
+    public Set<String> getPersonIds() { return Collections.unmodifiableSet(personIds); }
+    public void addPerson(String personId) { personIds.add(personId); }
+    public void removePerson(String personId) { personIds.remove(personId); }
+
+    public Set<String> getCategories() { return Collections.unmodifiableSet(categories); }
+    public void addCategory(String category) { categories.add(category); }
+    public void removeCategory(String category) { categories.remove(category); }
+
+    public long getFromMillis() { return fromMillis; }
+    public long getToMillis() { return toMillis; }
+    public void setDateRange(long fromMillis, long toMillis) {
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+    }
+
+    public long getMinCents() { return minCents; }
+    public long getMaxCents() { return maxCents; }
+    public void setAmountRange(long minCents, long maxCents) {
+        this.minCents = minCents;
+        this.maxCents = maxCents;
+    }
+
+    public String getText() { return text; }
+    public void setText(String text) {
+        this.text = text;
+        this.normalizedText = NameIndex.normalize(text);
+    }
+
+    public boolean hasDateRange() {
+        return fromMillis != Long.MIN_VALUE || toMillis != Long.MAX_VALUE;
+    }
+
+    public boolean hasAmountRange() {
+        return minCents != Long.MIN_VALUE || maxCents != Long.MAX_VALUE;
+    }
+
+    public boolean hasText() {
+        return !normalizedText.isEmpty();
+    }
+
+    // True if the query matches every expense
+    public boolean isEmpty() {
+        return personIds.isEmpty() && categories.isEmpty()
+                && !hasDateRange() && !hasAmountRange() && !hasText();
+    }
+
+    public boolean matches(Expense expense) {
+        return matches(expense, hasText() ? NameIndex.normalize(expense.getDescription()) : null);
+    }
+
+    // For callers that keep descriptions normalized; only read if there is text to match
+    boolean matches(Expense expense, String normalizedDescription) {
+        if (!personIds.isEmpty() && !personIds.contains(expense.getPaidBy().getId())) {
+            return false;
+        }
+        if (!categories.isEmpty() && !categories.contains(expense.getCategory())) {
+            return false;
+        }
+        if (hasDateRange()) {
+            long dateMillis = expense.getDate() != null ? expense.getDate().getTime() : 0;
+            if (dateMillis < fromMillis || dateMillis > toMillis) {
+                return false;
+            }
+        }
+        long cents = expense.getAmountCents();
+        if (cents < minCents || cents > maxCents) {
+            return false;
+        }
+        return !hasText() || normalizedDescription.contains(normalizedText);
+    }
+}
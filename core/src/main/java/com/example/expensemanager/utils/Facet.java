@@ -0,0 +1,21 @@
+package com.example.expensemanager.utils;
+
+/**
+ * One value of a filterable field (a payer id or a category) with how many current
+ * expenses have it and what they add up to.
+ */
+public final class Facet {
+    private final String key;
+    private final int count;
+    private final long totalCents;
+
+    Facet(String key, int count, long totalCents) {
+        this.key = key;
+        this.count = count;
+        this.totalCents = totalCents;
+    }
+
+    public String getKey() { return key; }
+    public int getCount() { return count; }
+    public long getTotalCents() { return totalCents; }
+}
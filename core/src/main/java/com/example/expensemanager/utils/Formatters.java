@@ -0,0 +1,197 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Money;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
+import java.util.Currency;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared number and date formatting. NumberFormat and SimpleDateFormat are costly to
+ * build and not thread-safe, so each thread keeps its own, cached per locale (and per
+ * pattern or currency). Every amount of money goes through appendMoney(), in the
+ * currency it is kept in and the display locale. Where that locale writes the currency
+ * as a plain prefix, as in "$1,234.56", NumberFormat is skipped altogether and the
+ * amount is rendered straight from cents into a StringBuilder.
+ */
+public final class Formatters {
+    // How expense and settlement dates are shown across the app
+    public static final String DATE_PATTERN = "MMM dd, yyyy";
+
+    private static final ThreadLocal<Map<String, NumberFormat>> CURRENCY_FORMATS =
+            new ThreadLocal<Map<String, NumberFormat>>() {
+                @Override
+                protected Map<String, NumberFormat> initialValue() {
+                    return new HashMap<>();
+                }
+            };
+
+    private static final ThreadLocal<Map<String, SimpleDateFormat>> DATE_FORMATS =
+            new ThreadLocal<Map<String, SimpleDateFormat>>() {
+                @Override
+                protected Map<String, SimpleDateFormat> initialValue() {
+                    return new HashMap<>();
+                }
+            };
+
+    // How each currency and locale pair is written; immutable, so shared by all threads
+    private static final Map<String, MoneyStyle> MONEY_STYLES = new ConcurrentHashMap<>();
+
+    // Separators and signs of a locale that writes the currency as a prefix. Locales
+    // that write it any other way get plain = false and go through NumberFormat.
+    private static final class MoneyStyle {
+        final boolean plain;
+        final String prefix;
+        final String negativePrefix;
+        final char groupingSeparator;
+        final char decimalSeparator;
+
+        MoneyStyle(boolean plain, String prefix, String negativePrefix,
+                   char groupingSeparator, char decimalSeparator) {
+            this.plain = plain;
+            this.prefix = prefix;
+            this.negativePrefix = negativePrefix;
+            this.groupingSeparator = groupingSeparator;
+            this.decimalSeparator = decimalSeparator;
+        }
+    }
+
+    private Formatters() {
+    }
+
+    // This thread's format for the currency in the locale; don't hand it to another thread
+    private static NumberFormat currency(String currency, Locale locale) {
+        Map<String, NumberFormat> formats = CURRENCY_FORMATS.get();
+        String key = currency + '\u001F' + locale;
+        NumberFormat format = formats.get(key);
+        if (format == null) {
+            format = NumberFormat.getCurrencyInstance(locale);
+            format.setCurrency(Currency.getInstance(currency));
+            formats.put(key, format);
+        }
+        return format;
+    }
+
+    private static MoneyStyle moneyStyle(String currency, Locale locale) {
+        String key = currency + '\u001F' + locale;
+        MoneyStyle style = MONEY_STYLES.get(key);
+        if (style == null) {
+            style = moneyStyleOf(currency(currency, locale));
+            MONEY_STYLES.put(key, style);
+        }
+        return style;
+    }
+
+    private static MoneyStyle moneyStyleOf(NumberFormat format) {
+        if (format instanceof DecimalFormat) {
+            DecimalFormat decimal = (DecimalFormat) format;
+            DecimalFormatSymbols symbols = decimal.getDecimalFormatSymbols();
+            String prefix = decimal.getPositivePrefix();
+            String negativePrefix = decimal.getNegativePrefix();
+            boolean plain = decimal.getPositiveSuffix().isEmpty()
+                    && decimal.getNegativeSuffix().isEmpty()
+                    && negativePrefix.endsWith(prefix)
+                    && decimal.getMinimumFractionDigits() == 2
+                    && decimal.getMaximumFractionDigits() == 2
+                    && decimal.isGroupingUsed()
+                    && decimal.getGroupingSize() == 3;
+            if (plain) {
+                return new MoneyStyle(true, prefix, negativePrefix,
+                        symbols.getGroupingSeparator(), symbols.getMonetaryDecimalSeparator());
+            }
+        }
+        return new MoneyStyle(false, null, null, '\0', '\0');
+    }
+
+    // This thread's date format for the pattern and locale, in the current time zone
+    public static SimpleDateFormat date(String pattern, Locale locale) {
+        Map<String, SimpleDateFormat> formats = DATE_FORMATS.get();
+        String key = pattern + '\u001F' + locale;
+        SimpleDateFormat format = formats.get(key);
+        if (format == null) {
+            format = new SimpleDateFormat(pattern, locale);
+            formats.put(key, format);
+        }
+        TimeZone zone = TimeZone.getDefault();
+        if (!zone.equals(format.getTimeZone())) {
+            format.setTimeZone(zone);
+        }
+        return format;
+    }
+
+    // DATE_PATTERN in the default locale; "" for a missing date
+    public static String formatDate(Date date) {
+        return date != null ? date(DATE_PATTERN, Locale.getDefault()).format(date) : "";
+    }
+
+    // The amount as NumberFormat.getCurrencyInstance() shows it in the default locale,
+    // e.g. "$1,234.56" for USD in the US
+    public static String formatMoney(long cents, String currency) {
+        return appendMoney(new StringBuilder(16), cents, currency).toString();
+    }
+
+    public static StringBuilder appendMoney(StringBuilder out, long cents, String currency) {
+        return appendMoney(out, cents, currency, Locale.getDefault());
+    }
+
+    public static StringBuilder appendMoney(StringBuilder out, long cents, String currency, Locale locale) {
+        MoneyStyle style = moneyStyle(currency, locale);
+        if (!style.plain) {
+            return out.append(currency(currency, locale).format(Money.toDouble(cents)));
+        }
+        out.append(cents < 0 ? style.negativePrefix : style.prefix);
+        return appendDigits(out, cents, style.groupingSeparator, style.decimalSeparator);
+    }
+
+    // "1234.56", as String.format("%.2f") shows it in an English locale; for numbers that
+    // are not money, such as durations
+    public static String formatAmount(long cents) {
+        return appendAmount(new StringBuilder(16), cents).toString();
+    }
+
+    public static StringBuilder appendAmount(StringBuilder out, long cents) {
+        if (cents < 0) {
+            out.append('-');
+        }
+        return appendDigits(out, cents, '\0', '.');
+    }
+
+    // Works on the negated value so Long.MIN_VALUE needs no special case. No grouping
+    // separator is written if it is '\0'.
+    private static StringBuilder appendDigits(StringBuilder out, long cents,
+                                              char groupingSeparator, char decimalSeparator) {
+        long negative = cents > 0 ? -cents : cents;
+        long major = negative / 100;
+        int minor = (int) -(negative % 100);
+
+        int start = out.length();
+        int digits = 0;
+        do {
+            if (groupingSeparator != '\0' && digits > 0 && digits % 3 == 0) {
+                out.append(groupingSeparator);
+            }
+            out.append((char) ('0' - major % 10));
+            major /= 10;
+            digits++;
+        } while (major != 0);
+        reverse(out, start, out.length() - 1);
+
+        return out.append(decimalSeparator).append((char) ('0' + minor / 10)).append((char) ('0' + minor % 10));
+    }
+
+    private static void reverse(StringBuilder out, int from, int to) {
+        while (from < to) {
+            char c = out.charAt(from);
+            out.setCharAt(from++, out.charAt(to));
+            out.setCharAt(to--, c);
+        }
+    }
+}
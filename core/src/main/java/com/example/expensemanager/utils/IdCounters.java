@@ -0,0 +1,53 @@
+package com.example.expensemanager.utils;
+
+/**
+ * Last numbers handed out for generated ids ("P12", "E40", "S3"). They are stored with
+ * the rest of the data, so a new id and the record that uses it land in the same commit.
+ */
+public class IdCounters {
+    private int person;
+    private int expense;
+    private int settlement;
+
+    public IdCounters() {
+    }
+
+    public IdCounters(int person, int expense, int settlement) {
+        this.person = person;
+        this.expense = expense;
+        this.settlement = settlement;
+    }
+
+    public int getPerson() { return person; }
+    public int getExpense() { return expense; }
+    public int getSettlement() { return settlement; }
+
+    String nextPersonId() {
+        return "P" + ++person;
+    }
+
+    String nextExpenseId() {
+        return "E" + ++expense;
+    }
+
+    String nextSettlementId() {
+        return "S" + ++settlement;
+    }
+
+    // Counters only ever move forward, so merging keeps the larger of each
+    void raiseTo(IdCounters other) {
+        person = Math.max(person, other.person);
+        expense = Math.max(expense, other.expense);
+        settlement = Math.max(settlement, other.settlement);
+    }
+
+    void reset() {
+        person = 0;
+        expense = 0;
+        settlement = 0;
+    }
+
+    IdCounters copy() {
+        return new IdCounters(person, expense, settlement);
+    }
+}
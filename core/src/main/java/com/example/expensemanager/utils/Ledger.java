@@ -0,0 +1,109 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Expense;
+import com.example.expensemanager.model.Money;
+import com.example.expensemanager.model.Person;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Running totals for the current cycle, kept in cents so repeated adds and removes
+ * never drift. DataStore updates it on every mutation, so totals, balances and the
+ * per-payer and per-category facets are answered without walking the expense list.
+ * Screens read totals from worker threads, so every method holds the ledger's lock.
+ */
+public class Ledger {
+    // Each slot holds {cents, expense count}; a slot goes away with its last expense
+    private static final int CENTS = 0;
+    private static final int COUNT = 1;
+
+    private long totalCents;
+    private final Map<String, long[]> paidByPerson = new LinkedHashMap<>();
+    private final Map<String, long[]> paidByCategory = new LinkedHashMap<>();
+
+    public synchronized void add(Expense expense) {
+        apply(expense, expense.getAmountCents(), 1);
+    }
+
+    public synchronized void remove(Expense expense) {
+        apply(expense, -expense.getAmountCents(), -1);
+    }
+
+    private void apply(Expense expense, long cents, int count) {
+        totalCents = Money.add(totalCents, cents);
+        add(paidByPerson, expense.getPaidBy().getId(), cents, count);
+        add(paidByCategory, expense.getCategory(), cents, count);
+    }
+
+    private static void add(Map<String, long[]> totals, String key, long cents, int count) {
+        long[] slot = totals.get(key);
+        if (slot == null) {
+            slot = new long[2];
+            totals.put(key, slot);
+        }
+        slot[CENTS] = Money.add(slot[CENTS], cents);
+        slot[COUNT] += count;
+        if (slot[COUNT] <= 0) {
+            totals.remove(key);
+        }
+    }
+
+    public synchronized void clear() {
+        totalCents = 0;
+        paidByPerson.clear();
+        paidByCategory.clear();
+    }
+
+    public synchronized long getTotalCents() {
+        return totalCents;
+    }
+
+    public synchronized long getPaidCents(String personId) {
+        long[] slot = paidByPerson.get(personId);
+        return slot != null ? slot[CENTS] : 0;
+    }
+
+    public synchronized long getCategoryCents(String category) {
+        long[] slot = paidByCategory.get(category);
+        return slot != null ? slot[CENTS] : 0;
+    }
+
+    public synchronized Map<String, Long> getCategoryTotals() {
+        Map<String, Long> totals = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : paidByCategory.entrySet()) {
+            totals.put(entry.getKey(), entry.getValue()[CENTS]);
+        }
+        return totals;
+    }
+
+    // Payers of current expenses, keyed by person id, in the order they first paid
+    public synchronized List<Facet> getPayerFacets() {
+        return facets(paidByPerson);
+    }
+
+    // Categories of current expenses in the order they were first used
+    public synchronized List<Facet> getCategoryFacets() {
+        return facets(paidByCategory);
+    }
+
+    private static List<Facet> facets(Map<String, long[]> totals) {
+        List<Facet> facets = new ArrayList<>(totals.size());
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            long[] slot = entry.getValue();
+            facets.add(new Facet(entry.getKey(), (int) slot[COUNT], slot[CENTS]));
+        }
+        return facets;
+    }
+
+    // Each person's balance against an equal share of the total
+    public synchronized Balances getBalances(List<Person> people) {
+        long[] paidCents = new long[people.size()];
+        for (int i = 0; i < paidCents.length; i++) {
+            paidCents[i] = getPaidCents(people.get(i).getId());
+        }
+        return Calculator.calculateBalances(people, paidCents, totalCents);
+    }
+}
@@ -0,0 +1,248 @@
+package com.example.expensemanager.utils;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters, latency histograms and size gauges for the persistence calls and the balance
+ * math, kept in release builds so real devices with real data can be inspected. Every
+ * metric is a constant created up front, so recording is a few atomic operations: no
+ * locks, no lookups by name and no allocation. MetricsActivity shows them and exports
+ * them as JSON.
+ */
+public final class Metrics {
+
+    public abstract static class Metric {
+        private final String name;
+
+        Metric(String name) {
+            this.name = name;
+        }
+
+        public String getName() { return name; }
+
+        public abstract void reset();
+
+        abstract void writeJson(JsonWriter out) throws IOException;
+
+        // One line for the debug screen
+        abstract void describe(StringBuilder out);
+    }
+
+    /** Latency of an operation, with the size of the last and largest input it saw. */
+    public static final class Timer extends Metric {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong lastItems = new AtomicLong(-1);
+        private final AtomicLong maxItems = new AtomicLong(-1);
+
+        Timer(String name) {
+            super(name);
+        }
+
+        public LatencyHistogram getLatency() { return latency; }
+
+        public long start() {
+            return System.nanoTime();
+        }
+
+        public void stop(long startNanos) {
+            stop(startNanos, -1);
+        }
+
+        // Also ends the matching trace span in debug builds
+        public void stop(long startNanos, int items) {
+            latency.record(System.nanoTime() - startNanos);
+            if (items >= 0) {
+                lastItems.set(items);
+                raise(maxItems, items);
+            }
+            Tracer.end(getName(), startNanos, items);
+        }
+
+        @Override
+        public void reset() {
+            latency.reset();
+            lastItems.set(-1);
+            maxItems.set(-1);
+        }
+
+        @Override
+        void writeJson(JsonWriter out) throws IOException {
+            out.name("type").value("timer");
+            out.name("count").value(latency.getCount());
+            out.name("totalNanos").value(latency.getSum());
+            out.name("meanNanos").value(latency.getMean());
+            out.name("p50Nanos").value(latency.getPercentile(0.5));
+            out.name("p90Nanos").value(latency.getPercentile(0.9));
+            out.name("p99Nanos").value(latency.getPercentile(0.99));
+            out.name("maxNanos").value(latency.getMax());
+            if (maxItems.get() >= 0) {
+                out.name("lastItems").value(lastItems.get());
+                out.name("maxItems").value(maxItems.get());
+            }
+        }
+
+        @Override
+        void describe(StringBuilder out) {
+            out.append(getName()).append("  n=").append(latency.getCount());
+            appendMillis(out.append("  p50="), latency.getPercentile(0.5));
+            appendMillis(out.append("  p99="), latency.getPercentile(0.99));
+            appendMillis(out.append("  max="), latency.getMax());
+            if (maxItems.get() >= 0) {
+                out.append("  items=").append(lastItems.get()).append(" (max ").append(maxItems.get()).append(')');
+            }
+        }
+    }
+
+    /** Latest and largest value of a size, such as bytes written. */
+    public static final class Gauge extends Metric {
+        private final AtomicLong last = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        Gauge(String name) {
+            super(name);
+        }
+
+        public void set(long value) {
+            last.set(value);
+            raise(max, value);
+        }
+
+        public long get() { return last.get(); }
+        public long getMax() { return max.get(); }
+
+        @Override
+        public void reset() {
+            last.set(0);
+            max.set(0);
+        }
+
+        @Override
+        void writeJson(JsonWriter out) throws IOException {
+            out.name("type").value("gauge");
+            out.name("last").value(last.get());
+            out.name("max").value(max.get());
+        }
+
+        @Override
+        void describe(StringBuilder out) {
+            out.append(getName()).append("  last=").append(last.get()).append("  max=").append(max.get());
+        }
+    }
+
+    public static final class Counter extends Metric {
+        private final AtomicLong count = new AtomicLong();
+
+        Counter(String name) {
+            super(name);
+        }
+
+        public void add(long delta) {
+            count.addAndGet(delta);
+        }
+
+        public long get() { return count.get(); }
+
+        @Override
+        public void reset() {
+            count.set(0);
+        }
+
+        @Override
+        void writeJson(JsonWriter out) throws IOException {
+            out.name("type").value("counter");
+            out.name("count").value(count.get());
+        }
+
+        @Override
+        void describe(StringBuilder out) {
+            out.append(getName()).append("  count=").append(count.get());
+        }
+    }
+
+    // Must come before the metrics below, which register themselves in it
+    private static final List<Metric> ALL = new ArrayList<>();
+
+    public static final Timer STORE_LOAD = register(new Timer(Tracer.STORE_LOAD));
+    public static final Timer STORE_LOAD_HISTORY = register(new Timer("store.loadHistory"));
+    public static final Timer STORE_LOAD_SEGMENT = register(new Timer("store.loadSegment"));
+    public static final Timer STORE_PERSIST = register(new Timer(Tracer.STORE_PERSIST));
+    public static final Timer STORE_COMPACT = register(new Timer("store.compact"));
+    public static final Timer RESET_CYCLE = register(new Timer("store.resetCycle"));
+    public static final Timer BALANCE_COMPUTE = register(new Timer(Tracer.BALANCE_COMPUTE));
+    public static final Timer SETTLEMENT_SOLVE = register(new Timer(Tracer.SETTLEMENT_SOLVE));
+    public static final Gauge JOURNAL_UNIT_BYTES = register(new Gauge("journal.unitBytes"));
+    public static final Gauge SNAPSHOT_BYTES = register(new Gauge("store.snapshotBytes"));
+    public static final Gauge ARCHIVE_CACHED_EXPENSES = register(new Gauge("archive.cachedExpenses"));
+    public static final Counter JOURNAL_RECORDS = register(new Counter("journal.records"));
+    public static final Counter ARCHIVE_CACHE_HITS = register(new Counter("archive.cacheHits"));
+    public static final Counter ARCHIVE_CACHE_MISSES = register(new Counter("archive.cacheMisses"));
+
+    private Metrics() {
+    }
+
+    private static <T extends Metric> T register(T metric) {
+        ALL.add(metric);
+        return metric;
+    }
+
+    public static List<Metric> all() {
+        return Collections.unmodifiableList(ALL);
+    }
+
+    public static void resetAll() {
+        for (Metric metric : ALL) {
+            metric.reset();
+        }
+    }
+
+    // Human-readable summary, one metric per line
+    public static String describeAll() {
+        StringBuilder out = new StringBuilder();
+        for (Metric metric : ALL) {
+            metric.describe(out);
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    public static String toJson() {
+        StringWriter json = new StringWriter();
+        try (JsonWriter out = new JsonWriter(json)) {
+            out.setIndent("  ");
+            out.beginObject();
+            out.name("capturedAtMillis").value(System.currentTimeMillis());
+            out.name("metrics").beginArray();
+            for (Metric metric : ALL) {
+                out.beginObject();
+                out.name("name").value(metric.getName());
+                metric.writeJson(out);
+                out.endObject();
+            }
+            out.endArray();
+            out.endObject();
+        } catch (IOException e) {
+            // A StringWriter does not fail
+            throw new IllegalStateException(e);
+        }
+        return json.toString();
+    }
+
+    private static void raise(AtomicLong max, long value) {
+        long seen;
+        while (value > (seen = max.get()) && !max.compareAndSet(seen, value)) {
+            // Lost a race with another writer; compare against its value
+        }
+    }
+
+    // Hundredths of a millisecond, rendered like cents
+    private static void appendMillis(StringBuilder out, long nanos) {
+        Formatters.appendAmount(out, nanos / 10_000).append("ms");
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.expensemanager.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Substring search over item names. Names are normalized once when the index is built
+ * (lower case, accents stripped) and every three-character sequence is indexed, so a
+ * query only has to check the items that contain its rarest trigram. Queries shorter
+ * than a trigram scan the normalized names.
+ *
+ * The index never changes after it is built, so it can be searched from any thread.
+ */
+public final class NameIndex<T> {
+    private static final int GRAM = 3;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private final List<T> items;
+    private final String[] names;
+    private final Map<String, int[]> postings;
+
+    public NameIndex(List<T> items, Function<T, String> name) {
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
+        this.names = new String[this.items.size()];
+
+        Map<String, Postings> building = new HashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            names[i] = normalize(name.apply(this.items.get(i)));
+            for (int start = 0; start + GRAM <= names[i].length(); start++) {
+                String gram = names[i].substring(start, start + GRAM);
+                Postings list = building.get(gram);
+                if (list == null) {
+                    list = new Postings();
+                    building.put(gram, list);
+                }
+                list.add(i);
+            }
+        }
+        this.postings = new HashMap<>(building.size() * 2);
+        for (Map.Entry<String, Postings> entry : building.entrySet()) {
+            postings.put(entry.getKey(), entry.getValue().toArray());
+        }
+    }
+
+    // Growable list of item indices for one trigram
+    private static final class Postings {
+        private int[] indices = new int[4];
+        private int size;
+
+        void add(int index) {
+            // Items are added in order, so a trigram repeated within one name is the last entry
+            if (size > 0 && indices[size - 1] == index) {
+                return;
+            }
+            if (size == indices.length) {
+                indices = Arrays.copyOf(indices, size * 2);
+            }
+            indices[size++] = index;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(indices, size);
+        }
+    }
+
+    public static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(name.trim(), Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    // Items whose name contains the query, in their original order
+    public List<T> search(String query) {
+        if (normalize(query).isEmpty()) {
+            return items;
+        }
+        BitSet matches = matching(query);
+        List<T> result = new ArrayList<>(matches.cardinality());
+        for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+            result.add(items.get(i));
+        }
+        return result;
+    }
+
+    // Positions of the items whose name contains the query
+    public BitSet matching(String query) {
+        String needle = normalize(query);
+        BitSet result = new BitSet(names.length);
+        if (needle.isEmpty()) {
+            result.set(0, names.length);
+            return result;
+        }
+
+        if (needle.length() < GRAM) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].contains(needle)) {
+                    result.set(i);
+                }
+            }
+            return result;
+        }
+
+        int[] candidates = null;
+        for (int start = 0; start + GRAM <= needle.length(); start++) {
+            int[] list = postings.get(needle.substring(start, start + GRAM));
+            if (list == null) {
+                return result;
+            }
+            if (candidates == null || list.length < candidates.length) {
+                candidates = list;
+            }
+        }
+        for (int i : candidates) {
+            if (names[i].contains(needle)) {
+                result.set(i);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Expense;
+import com.example.expensemanager.model.Person;
+import com.example.expensemanager.model.Settlement;
+import com.example.expensemanager.model.SettlementItem;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One Person instance per id. Expenses and settlement items are stored with person ids
+ * only and come back holding bare references; interning swaps each reference for the
+ * registered instance so renames and totals are seen everywhere. People who were removed
+ * stay registered, because history still points at them.
+ */
+final class PersonRegistry {
+    private static final String UNKNOWN_NAME = "Unknown";
+    private static final String UNKNOWN_COLOR = "#757575";
+
+    private final Map<String, Person> people = new ConcurrentHashMap<>();
+
+    // Makes `person` the instance for its id, unless one is registered already. Segment
+    // reads intern off the write lock, so every check-then-put here is a single atomic step.
+    Person register(Person person) {
+        Person existing = people.putIfAbsent(person.getId(), person);
+        return existing != null ? existing : person;
+    }
+
+    Person intern(Person reference) {
+        if (reference == null) {
+            return null;
+        }
+        return people.computeIfAbsent(reference.getId(), id -> {
+            // Nobody registered with this id, so keep whatever the reference carried
+            if (reference.getName() == null) {
+                reference.setName(UNKNOWN_NAME);
+            }
+            if (reference.getColorHex() == null) {
+                reference.setColorHex(UNKNOWN_COLOR);
+            }
+            return reference;
+        });
+    }
+
+    void clear() {
+        people.clear();
+    }
+
+    // Registers the snapshot's people, then points every reference in it at them
+    void link(StoreSnapshot snapshot) {
+        for (Person person : snapshot.getPeople()) {
+            register(person);
+        }
+        for (Person person : snapshot.getFormerPeople()) {
+            register(person);
+        }
+        internExpenses(snapshot.getExpenses());
+        internExpenses(snapshot.getArchivedExpenses());
+        internSettlements(snapshot.getSettlements());
+    }
+
+    void internExpenses(List<Expense> expenses) {
+        for (Expense expense : expenses) {
+            expense.setPaidBy(intern(expense.getPaidBy()));
+        }
+    }
+
+    void internSettlements(List<Settlement> settlements) {
+        for (Settlement settlement : settlements) {
+            if (settlement.getSettlements() == null) continue;
+            for (SettlementItem item : settlement.getSettlements()) {
+                item.setFrom(intern(item.getFrom()));
+                item.setTo(intern(item.getTo()));
+            }
+        }
+    }
+
+    // Everyone registered who is not among `active`. Archive segments on disk may refer
+    // to any of them, so this is what a snapshot keeps as its former people.
+    List<Person> formerPeople(List<Person> active) {
+        Set<String> activeIds = new HashSet<>();
+        for (Person person : active) {
+            activeIds.add(person.getId());
+        }
+        List<Person> former = new ArrayList<>();
+        for (Person person : people.values()) {
+            if (!activeIds.contains(person.getId())) {
+                former.add(person);
+            }
+        }
+        return former;
+    }
+
+    // People the snapshot's expenses or settlements refer to who are no longer among its people
+    static List<Person> formerPeople(StoreSnapshot snapshot) {
+        Set<String> active = new HashSet<>();
+        for (Person person : snapshot.getPeople()) {
+            active.add(person.getId());
+        }
+        Map<String, Person> former = new LinkedHashMap<>();
+        collect(snapshot.getExpenses(), active, former);
+        collect(snapshot.getArchivedExpenses(), active, former);
+        for (Settlement settlement : snapshot.getSettlements()) {
+            if (settlement.getSettlements() == null) continue;
+            for (SettlementItem item : settlement.getSettlements()) {
+                collect(item.getFrom(), active, former);
+                collect(item.getTo(), active, former);
+            }
+        }
+        return new ArrayList<>(former.values());
+    }
+
+    private static void collect(List<Expense> expenses, Set<String> active, Map<String, Person> former) {
+        for (Expense expense : expenses) {
+            collect(expense.getPaidBy(), active, former);
+        }
+    }
+
+    private static void collect(Person person, Set<String> active, Map<String, Person> former) {
+        if (person != null && !active.contains(person.getId())) {
+            former.putIfAbsent(person.getId(), person);
+        }
+    }
+}
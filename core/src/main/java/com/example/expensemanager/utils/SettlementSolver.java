@@ -0,0 +1,241 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Person;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds settlements with the fewest transfers. A group of k people whose balances sum
+ * to zero can always be settled with k - 1 transfers, so the fewest transfers overall
+ * means splitting everyone into as many zero-sum groups as possible.
+ *
+ * Up to EXACT_LIMIT people with a non-zero balance are solved exactly with a DP over
+ * subsets. Larger groups first peel off zero-sum pairs and triples, which is where
+ * almost all of the savings are, within a fixed step budget, then solve what is left
+ * exactly if it has become small enough or greedily otherwise.
+ *
+ * The result depends only on the balances: people are ordered by balance and then id,
+ * and the budget counts steps rather than time.
+ */
+final class SettlementSolver {
+    // 2^18 subset sums take 2 MB and the DP finishes in tens of milliseconds
+    static final int EXACT_LIMIT = 18;
+    static final long STEP_BUDGET = 2_000_000L;
+
+    private final Balances balances;
+    private final long[] remaining;
+    private final List<Calculator.Settlement> settlements = new ArrayList<>();
+    private long steps;
+
+    private SettlementSolver(Balances balances) {
+        this.balances = balances;
+        this.remaining = balances.copyCents();
+    }
+
+    static List<Calculator.Settlement> solve(Balances balances) {
+        SettlementSolver solver = new SettlementSolver(balances);
+        solver.run();
+        return solver.settlements;
+    }
+
+    private void run() {
+        int[] open = sortedNonZero();
+        if (open.length > EXACT_LIMIT) {
+            open = matchPairs(open);
+        }
+        if (open.length > EXACT_LIMIT) {
+            open = matchTriples(open);
+        }
+        if (open.length > EXACT_LIMIT) {
+            settleGroup(open);
+        } else {
+            settleExact(open);
+        }
+    }
+
+    // Indices of people with a non-zero balance, ordered by balance and then person id
+    private int[] sortedNonZero() {
+        List<Integer> open = new ArrayList<>();
+        for (int i = 0; i < remaining.length; i++) {
+            if (remaining[i] != 0) {
+                open.add(i);
+            }
+        }
+        open.sort((a, b) -> {
+            int byAmount = Long.compare(remaining[a], remaining[b]);
+            return byAmount != 0 ? byAmount
+                    : compareIds(balances.getPerson(a), balances.getPerson(b));
+        });
+        int[] result = new int[open.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = open.get(i);
+        }
+        return result;
+    }
+
+    private static int compareIds(Person a, Person b) {
+        return a.getId().compareTo(b.getId());
+    }
+
+    // Settles every debtor whose debt exactly matches some creditor's credit
+    private int[] matchPairs(int[] open) {
+        Map<Long, List<Integer>> creditorsByAmount = new HashMap<>();
+        for (int index : open) {
+            if (remaining[index] > 0) {
+                List<Integer> same = creditorsByAmount.get(remaining[index]);
+                if (same == null) {
+                    same = new ArrayList<>();
+                    creditorsByAmount.put(remaining[index], same);
+                }
+                same.add(index);
+            }
+        }
+
+        boolean[] done = new boolean[remaining.length];
+        for (int debtor : open) {
+            if (remaining[debtor] >= 0 || steps++ >= STEP_BUDGET) {
+                break;
+            }
+            List<Integer> same = creditorsByAmount.get(-remaining[debtor]);
+            if (same != null && !same.isEmpty()) {
+                int creditor = same.remove(0);
+                settleGroup(new int[]{debtor, creditor});
+                done[debtor] = true;
+                done[creditor] = true;
+            }
+        }
+        return without(open, done);
+    }
+
+    // Settles groups of one person against two on the other side that sum to zero
+    private int[] matchTriples(int[] open) {
+        boolean[] done = new boolean[remaining.length];
+        Map<Long, List<Integer>> byAmount = new HashMap<>();
+        for (int index : open) {
+            List<Integer> same = byAmount.get(remaining[index]);
+            if (same == null) {
+                same = new ArrayList<>();
+                byAmount.put(remaining[index], same);
+            }
+            same.add(index);
+        }
+
+        search:
+        for (int i = 0; i < open.length; i++) {
+            int first = open[i];
+            if (done[first]) {
+                continue;
+            }
+            for (int j = i + 1; j < open.length; j++) {
+                if (steps++ >= STEP_BUDGET) {
+                    break search;
+                }
+                int second = open[j];
+                if (done[second]) {
+                    continue;
+                }
+                // Only pairs on the same side can be closed by a single third person
+                if ((remaining[first] > 0) != (remaining[second] > 0)) {
+                    continue;
+                }
+                long target = -(remaining[first] + remaining[second]);
+                List<Integer> same = byAmount.get(target);
+                if (same == null) {
+                    continue;
+                }
+                for (int third : same) {
+                    if (!done[third]) {
+                        settleGroup(new int[]{first, second, third});
+                        done[first] = true;
+                        done[second] = true;
+                        done[third] = true;
+                        continue search;
+                    }
+                }
+            }
+        }
+        return without(open, done);
+    }
+
+    private static int[] without(int[] open, boolean[] done) {
+        int count = 0;
+        for (int index : open) {
+            if (!done[index]) {
+                count++;
+            }
+        }
+        int[] result = new int[count];
+        int next = 0;
+        for (int index : open) {
+            if (!done[index]) {
+                result[next++] = index;
+            }
+        }
+        return result;
+    }
+
+    // Exact partition into the largest number of zero-sum groups.
+    // best[mask] is the most zero-sum prefixes any ordering of mask can have.
+    private void settleExact(int[] open) {
+        int n = open.length;
+        if (n == 0) {
+            return;
+        }
+        int full = (1 << n) - 1;
+        long[] sum = new long[full + 1];
+        byte[] best = new byte[full + 1];
+        for (int mask = 1; mask <= full; mask++) {
+            int low = Integer.numberOfTrailingZeros(mask);
+            sum[mask] = sum[mask & (mask - 1)] + remaining[open[low]];
+            int most = 0;
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int bit = Integer.numberOfTrailingZeros(rest);
+                most = Math.max(most, best[mask ^ (1 << bit)]);
+            }
+            best[mask] = (byte) (sum[mask] == 0 ? most + 1 : most);
+        }
+
+        // Walk back from the full set, always dropping the lowest member that keeps the
+        // optimum; a zero-sum mask closes the group that was built since the last one
+        int[] order = new int[n];
+        int[] groupEnds = new int[n];
+        int groups = 0;
+        int mask = full;
+        for (int position = n - 1; position >= 0; position--) {
+            if (sum[mask] == 0) {
+                groupEnds[groups++] = position;
+            }
+            int target = sum[mask] == 0 ? best[mask] - 1 : best[mask];
+            for (int rest = mask; rest != 0; rest &= rest - 1) {
+                int bit = Integer.numberOfTrailingZeros(rest);
+                if (best[mask ^ (1 << bit)] == target) {
+                    order[position] = open[bit];
+                    mask ^= 1 << bit;
+                    break;
+                }
+            }
+        }
+
+        // groupEnds were found from the back; emit the groups front to back
+        int start = 0;
+        for (int g = groups - 1; g >= 0; g--) {
+            int end = groupEnds[g];
+            settleGroup(Arrays.copyOfRange(order, start, end + 1));
+            start = end + 1;
+        }
+        if (start < n) {
+            // Only reachable if the balances did not sum to zero
+            settleGroup(Arrays.copyOfRange(order, start, n));
+        }
+    }
+
+    // Greedy within one zero-sum group. Every transfer clears at least one person and
+    // the last clears two, so k people take at most k - 1 transfers.
+    private void settleGroup(int[] members) {
+        Calculator.settleGreedy(balances, remaining, members, settlements);
+    }
+}
@@ -0,0 +1,541 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Expense;
+import com.example.expensemanager.model.Person;
+import com.example.expensemanager.model.Settlement;
+import com.example.expensemanager.model.SettlementItem;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary form of a StoreSnapshot. Every person and every category or currency string is
+ * written once in a table and referred to by index; amounts are zigzag varints of cents
+ * and dates are varint deltas from the previous date in the same list. The body can be
+ * deflated on top of that.
+ *
+ * File layout: "EMSB", format version, flags, body length and the CRC32 of the body,
+ * then the body. Readers dispatch on the version, so a new layout only needs a new
+ * reader case and older files keep loading.
+ */
+final class SnapshotCodec {
+    static final int FORMAT_VERSION = 1;
+
+    private static final byte[] MAGIC = {'E', 'M', 'S', 'B'};
+    private static final int HEADER_BYTES = MAGIC.length + 2 + 4 + 4;
+    private static final int FLAG_DEFLATED = 1;
+
+    // Person table roles
+    private static final int ROLE_REFERENCE = 0;
+    private static final int ROLE_ACTIVE = 1;
+    private static final int ROLE_FORMER = 2;
+
+    private final boolean deflate;
+
+    // Deflating suits files that are written rarely and read rarely, like history
+    SnapshotCodec(boolean deflate) {
+        this.deflate = deflate;
+    }
+
+    // Writes to a temporary file, syncs it and renames it over `file`
+    void write(File file, StoreSnapshot snapshot) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(encode(snapshot));
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp);
+             FileChannel channel = out.getChannel()) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Failed to replace " + file.getName());
+        }
+    }
+
+    // The whole file: header, then the body, deflated if this codec deflates
+    byte[] encode(StoreSnapshot snapshot) {
+        Output body = new Output();
+        encodeBody(body, snapshot);
+        CRC32 crc = new CRC32();
+        crc.update(body.bytes, 0, body.length);
+
+        byte[] payload = body.bytes;
+        int payloadLength = body.length;
+        int flags = 0;
+        if (deflate) {
+            payload = deflate(body.bytes, body.length);
+            payloadLength = payload.length;
+            flags |= FLAG_DEFLATED;
+        }
+
+        ByteBuffer file = ByteBuffer.allocate(HEADER_BYTES + payloadLength);
+        file.put(MAGIC).put((byte) FORMAT_VERSION).put((byte) flags)
+                .putInt(body.length).putInt((int) crc.getValue())
+                .put(payload, 0, payloadLength);
+        return file.array();
+    }
+
+    StoreSnapshot read(File file) throws IOException {
+        try (FileInputStream in = new FileInputStream(file);
+             FileChannel channel = in.getChannel()) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file.getName() + " is too large");
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException(file.getName() + " shrank while being read");
+                }
+            }
+            return decode(buffer.array());
+        }
+    }
+
+    StoreSnapshot decode(byte[] bytes) throws IOException {
+        if (bytes.length < HEADER_BYTES || !Arrays.equals(Arrays.copyOf(bytes, MAGIC.length), MAGIC)) {
+            throw new IOException("Not a binary snapshot");
+        }
+        ByteBuffer header = ByteBuffer.wrap(bytes, MAGIC.length, HEADER_BYTES - MAGIC.length);
+        int version = header.get() & 0xFF;
+        int flags = header.get() & 0xFF;
+        int bodyLength = header.getInt();
+        int expectedCrc = header.getInt();
+
+        byte[] body;
+        if ((flags & FLAG_DEFLATED) != 0) {
+            body = inflate(bytes, HEADER_BYTES, bytes.length - HEADER_BYTES, bodyLength);
+        } else {
+            body = Arrays.copyOfRange(bytes, HEADER_BYTES, bytes.length);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        if (body.length != bodyLength || (int) crc.getValue() != expectedCrc) {
+            throw new IOException("Snapshot body is damaged");
+        }
+
+        Input in = new Input(body);
+        switch (version) {
+            case 1:
+                return decodeV1(in);
+            default:
+                throw new IOException("Snapshot format " + version + " is newer than this app");
+        }
+    }
+
+    // Body, version 1
+
+    private static void encodeBody(Output out, StoreSnapshot snapshot) {
+        PersonTable people = new PersonTable();
+        for (Person person : snapshot.getPeople()) {
+            people.add(person, ROLE_ACTIVE);
+        }
+        for (Person person : snapshot.getFormerPeople()) {
+            people.add(person, ROLE_FORMER);
+        }
+        StringTable strings = new StringTable();
+        collect(snapshot.getExpenses(), people, strings);
+        collect(snapshot.getArchivedExpenses(), people, strings);
+        for (Settlement settlement : snapshot.getSettlements()) {
+            strings.add(settlement.getCurrency());
+            if (settlement.getSettlements() == null) continue;
+            for (SettlementItem item : settlement.getSettlements()) {
+                people.add(item.getFrom(), ROLE_REFERENCE);
+                people.add(item.getTo(), ROLE_REFERENCE);
+            }
+        }
+
+        out.writeVarInt(people.people.size());
+        for (int i = 0; i < people.people.size(); i++) {
+            Person person = people.people.get(i);
+            int role = people.roles.get(i);
+            out.writeVarInt(role);
+            out.writeString(person.getId());
+            if (role != ROLE_REFERENCE) {
+                out.writeString(person.getName());
+                out.writeString(person.getColorHex());
+            }
+        }
+        out.writeVarInt(strings.strings.size());
+        for (String value : strings.strings) {
+            out.writeString(value);
+        }
+
+        writeExpenses(out, snapshot.getExpenses(), people, strings);
+        writeExpenses(out, snapshot.getArchivedExpenses(), people, strings);
+
+        out.writeVarInt(snapshot.getSettlements().size());
+        long previousDate = 0;
+        for (Settlement settlement : snapshot.getSettlements()) {
+            out.writeString(settlement.getId());
+            previousDate = writeDate(out, settlement.getDate(), previousDate);
+            out.writeString(settlement.getDescription());
+            out.writeVarInt(strings.indexOf(settlement.getCurrency()));
+            List<SettlementItem> items = settlement.getSettlements();
+            // 0 for a missing list, otherwise the size plus one
+            out.writeVarInt(items != null ? items.size() + 1 : 0);
+            if (items == null) continue;
+            for (SettlementItem item : items) {
+                out.writeVarInt(people.indexOf(item.getFrom()));
+                out.writeVarInt(people.indexOf(item.getTo()));
+                out.writeVarLong(zigzag(item.getAmountCents()));
+                out.writeVarInt(item.isSettled() ? 1 : 0);
+            }
+        }
+
+        out.writeVarInt(snapshot.getArchiveSegments().size());
+        for (String id : snapshot.getArchiveSegments()) {
+            out.writeString(id);
+        }
+
+        IdCounters counters = snapshot.getCounters();
+        out.writeVarInt(counters.getPerson());
+        out.writeVarInt(counters.getExpense());
+        out.writeVarInt(counters.getSettlement());
+        out.writeVarLong(snapshot.getLastSequence());
+    }
+
+    private static StoreSnapshot decodeV1(Input in) throws IOException {
+        StoreSnapshot snapshot = new StoreSnapshot();
+
+        int personCount = in.readCount();
+        Person[] people = new Person[personCount];
+        for (int i = 0; i < personCount; i++) {
+            int role = in.readVarInt();
+            String id = in.readString();
+            if (role == ROLE_REFERENCE) {
+                // Like a JSON reference: just the id, for the registry to resolve
+                people[i] = new Person(id, null, 0, null);
+                continue;
+            }
+            people[i] = new Person(id, in.readString(), 0, in.readString());
+            if (role == ROLE_ACTIVE) {
+                snapshot.getPeople().add(people[i]);
+            } else {
+                snapshot.getFormerPeople().add(people[i]);
+            }
+        }
+        int stringCount = in.readCount();
+        String[] strings = new String[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            strings[i] = in.readString();
+        }
+
+        readExpenses(in, snapshot.getExpenses(), people, strings);
+        readExpenses(in, snapshot.getArchivedExpenses(), people, strings);
+
+        int settlementCount = in.readCount();
+        long previousDate = 0;
+        for (int i = 0; i < settlementCount; i++) {
+            String id = in.readString();
+            Date date = readDate(in, previousDate);
+            if (date != null) {
+                previousDate = date.getTime();
+            }
+            String description = in.readString();
+            String currency = lookup(strings, in.readVarInt());
+            int itemCount = in.readCount();
+            List<SettlementItem> items = null;
+            if (itemCount > 0) {
+                items = new ArrayList<>(itemCount - 1);
+                for (int j = 1; j < itemCount; j++) {
+                    SettlementItem item = new SettlementItem(lookup(people, in.readVarInt()),
+                            lookup(people, in.readVarInt()), unzigzag(in.readVarLong()));
+                    item.setSettled(in.readVarInt() != 0);
+                    items.add(item);
+                }
+            }
+            // Only a missing id costs a fresh UUID, as with the JSON adapter
+            Settlement settlement = new Settlement(id, date, items, description);
+            if (currency != null) {
+                settlement.setCurrency(currency);
+            }
+            snapshot.getSettlements().add(settlement);
+        }
+
+        int segmentCount = in.readCount();
+        for (int i = 0; i < segmentCount; i++) {
+            snapshot.getArchiveSegments().add(in.readString());
+        }
+
+        snapshot.getCounters().raiseTo(new IdCounters(in.readVarInt(), in.readVarInt(), in.readVarInt()));
+        snapshot.setLastSequence(in.readVarLong());
+        return snapshot;
+    }
+
+    private static void collect(List<Expense> expenses, PersonTable people, StringTable strings) {
+        for (Expense expense : expenses) {
+            people.add(expense.getPaidBy(), ROLE_REFERENCE);
+            strings.add(expense.getCurrency());
+            strings.add(expense.getCategory());
+        }
+    }
+
+    private static void writeExpenses(Output out, List<Expense> expenses, PersonTable people, StringTable strings) {
+        out.writeVarInt(expenses.size());
+        long previousDate = 0;
+        for (Expense expense : expenses) {
+            out.writeString(expense.getId());
+            out.writeVarInt(people.indexOf(expense.getPaidBy()));
+            out.writeVarLong(zigzag(expense.getAmountCents()));
+            out.writeVarInt(strings.indexOf(expense.getCurrency()));
+            out.writeString(expense.getDescription());
+            previousDate = writeDate(out, expense.getDate(), previousDate);
+            out.writeVarInt(strings.indexOf(expense.getCategory()));
+        }
+    }
+
+    private static void readExpenses(Input in, List<Expense> expenses, Person[] people, String[] strings)
+            throws IOException {
+        int count = in.readCount();
+        long previousDate = 0;
+        for (int i = 0; i < count; i++) {
+            String id = in.readString();
+            Person paidBy = lookup(people, in.readVarInt());
+            long amountCents = unzigzag(in.readVarLong());
+            String currency = lookup(strings, in.readVarInt());
+            String description = in.readString();
+            Date date = readDate(in, previousDate);
+            if (date != null) {
+                previousDate = date.getTime();
+            }
+            String category = lookup(strings, in.readVarInt());
+            // Only a missing id costs a fresh UUID, as with the JSON adapter
+            Expense expense = id != null
+                    ? new Expense(id, paidBy, amountCents, description, date, category)
+                    : new Expense(paidBy, amountCents, description, date, category);
+            if (currency != null) {
+                expense.setCurrency(currency);
+            }
+            expenses.add(expense);
+        }
+    }
+
+    // 0 for a missing date, otherwise the zigzag delta plus one; returns the new base
+    private static long writeDate(Output out, Date date, long previousMillis) {
+        if (date == null) {
+            out.writeVarLong(0);
+            return previousMillis;
+        }
+        out.writeVarLong(zigzag(date.getTime() - previousMillis) + 1);
+        return date.getTime();
+    }
+
+    private static Date readDate(Input in, long previousMillis) throws IOException {
+        long code = in.readVarLong();
+        return code == 0 ? null : new Date(previousMillis + unzigzag(code - 1));
+    }
+
+    // Table indexes are written plus one, so 0 can stand for null
+    private static <T> T lookup(T[] table, int index) throws IOException {
+        if (index == 0) {
+            return null;
+        }
+        if (index > table.length) {
+            throw new IOException("Table index " + index + " out of range");
+        }
+        return table[index - 1];
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static byte[] deflate(byte[] bytes, int length) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(bytes, 0, length);
+            deflater.finish();
+            Output out = new Output();
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                out.write(chunk, n);
+            }
+            return Arrays.copyOf(out.bytes, out.length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes, int offset, int length, int bodyLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, offset, length);
+            byte[] body = new byte[bodyLength];
+            int filled = 0;
+            while (filled < bodyLength && !inflater.finished()) {
+                int n = inflater.inflate(body, filled, bodyLength - filled);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new EOFException("Deflated snapshot is cut short");
+                }
+                filled += n;
+            }
+            if (filled != bodyLength || !inflater.finished()) {
+                throw new IOException("Deflated snapshot has the wrong length");
+            }
+            return body;
+        } catch (DataFormatException e) {
+            throw new IOException("Deflated snapshot is damaged", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // People in table order; the first entry for an id wins, so roles set by people and
+    // formerPeople are kept when expenses refer to the same id
+    private static final class PersonTable {
+        final List<Person> people = new ArrayList<>();
+        final List<Integer> roles = new ArrayList<>();
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        void add(Person person, int role) {
+            if (person == null || person.getId() == null || indexes.containsKey(person.getId())) {
+                return;
+            }
+            people.add(person);
+            roles.add(role);
+            indexes.put(person.getId(), people.size());
+        }
+
+        int indexOf(Person person) {
+            if (person == null || person.getId() == null) {
+                return 0;
+            }
+            return indexes.get(person.getId());
+        }
+    }
+
+    private static final class StringTable {
+        final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        void add(String value) {
+            if (value != null && !indexes.containsKey(value)) {
+                strings.add(value);
+                indexes.put(value, strings.size());
+            }
+        }
+
+        int indexOf(String value) {
+            return value != null ? indexes.get(value) : 0;
+        }
+    }
+
+    private static final class Output {
+        byte[] bytes = new byte[4096];
+        int length;
+
+        void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        // 0 for null, otherwise the UTF-8 length plus one, then the bytes
+        void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(utf8.length + 1);
+            write(utf8, utf8.length);
+        }
+
+        void write(byte[] source, int count) {
+            ensure(count);
+            System.arraycopy(source, 0, bytes, length, count);
+            length += count;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+    }
+
+    private static final class Input {
+        private final byte[] bytes;
+        private int position;
+
+        Input(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int readVarInt() throws IOException {
+            long value = readVarLong();
+            if (value < 0 || value > 0xFFFFFFFFL) {
+                throw new IOException("Varint out of range");
+            }
+            return (int) value;
+        }
+
+        // A list size, checked against what is left so a damaged file can't ask for a huge array
+        int readCount() throws IOException {
+            int count = readVarInt();
+            if (count < 0 || count > bytes.length - position + 1) {
+                throw new IOException("Implausible count " + count);
+            }
+            return count;
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= bytes.length) {
+                    throw new EOFException("Snapshot body ends early");
+                }
+                byte b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Varint too long");
+        }
+
+        String readString() throws IOException {
+            int length = readVarInt();
+            if (length == 0) {
+                return null;
+            }
+            length--;
+            if (length > bytes.length - position) {
+                throw new EOFException("Snapshot body ends early");
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+    }
+}
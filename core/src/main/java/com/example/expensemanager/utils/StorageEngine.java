@@ -0,0 +1,77 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Expense;
+import com.example.expensemanager.model.Person;
+import com.example.expensemanager.model.Settlement;
+
+import java.util.List;
+
+/**
+ * Persistence backend behind DataStore. DataStore keeps the in-memory lists and
+ * reports every mutation here; an engine only has to persist that single change.
+ * Derived values such as a person's total paid are recomputed by DataStore on load.
+ *
+ * Archived expenses are kept as one immutable segment per settlement cycle, named by
+ * the id of the settlement that closed it, and are only read one segment at a time.
+ */
+public interface StorageEngine {
+
+    // Segment holding expenses archived before cycles were stored apart
+    String LEGACY_SEGMENT = "legacy";
+
+    // Load people and current expenses (migrating older formats); history lists stay empty
+    StoreSnapshot load();
+
+    // Fill in settlements and archive segment ids; only called once, after load()
+    void loadHistory(StoreSnapshot snapshot);
+
+    // The expenses archived by one cycle, in the order they were added; empty if there
+    // is no such segment. Throws StorageException if it exists but can't be read.
+    // May be called from any thread.
+    List<Expense> loadArchiveSegment(String settlementId);
+
+    void savePerson(Person person);
+
+    // Removes the person and every current expense they paid
+    void deletePerson(String personId);
+
+    void saveExpense(Expense expense);
+
+    void deleteExpense(String expenseId);
+
+    void saveSettlement(Settlement settlement);
+
+    void deleteSettlement(String settlementId);
+
+    // Records the settlement and moves all current expenses, passed as `archived`, into a
+    // new archive segment under the settlement's id. No segment is made for an empty cycle.
+    void archiveCycle(Settlement settlement, List<Expense> archived);
+
+    void clear();
+
+    // Last generated id numbers; reported in the same unit as the record that used one
+    void saveCounters(IdCounters counters);
+
+    // Everything reported between begin() and commit() is one unit: it reaches disk in
+    // a single write, and after a crash either all of it is loaded or none of it is
+    default void begin() {
+    }
+
+    default void commit() {
+    }
+
+    // Drops everything reported since begin(), for a unit that failed part way
+    default void rollback() {
+    }
+
+    // Engines that keep a log can fold it into a snapshot when it grows too large.
+    // The snapshot passed to compact() always has its history loaded.
+    default boolean needsCompaction() {
+        return false;
+    }
+
+    // False if the snapshot could not be written; the log then still holds everything
+    default boolean compact(StoreSnapshot snapshot) {
+        return true;
+    }
+}
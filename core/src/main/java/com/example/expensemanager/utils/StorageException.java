@@ -0,0 +1,16 @@
+package com.example.expensemanager.utils;
+
+/**
+ * A storage engine could not read or write what it was asked to. The data on disk is left
+ * as it was before the call.
+ */
+public class StorageException extends RuntimeException {
+
+    public StorageException(String message) {
+        super(message);
+    }
+
+    public StorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
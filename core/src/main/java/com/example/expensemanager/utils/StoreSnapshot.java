@@ -0,0 +1,85 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Expense;
+import com.example.expensemanager.model.Person;
+import com.example.expensemanager.model.Settlement;
+import com.google.gson.annotations.JsonAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Full copy of the persisted state, as loaded from or written to a StorageEngine
+@JsonAdapter(StoreSnapshotAdapter.class)
+public class StoreSnapshot {
+    private List<Person> people;
+    // Removed people that stored expenses or settlements still refer to by id
+    private List<Person> formerPeople;
+    private List<Expense> expenses;
+    // Only set when importing or exporting a format without archive segments
+    private List<Expense> archivedExpenses;
+    private List<Settlement> settlements;
+    // Settlement ids of the archive segments, oldest first; their expenses are loaded apart
+    private List<String> archiveSegments;
+
+    private IdCounters counters;
+
+    // Sequence number of the last journal record folded into this snapshot
+    private long lastSequence;
+
+    // Empty constructor for GSON
+    public StoreSnapshot() {
+        this(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+    }
+
+    public StoreSnapshot(List<Person> people, List<Expense> expenses,
+                         List<Expense> archivedExpenses, List<Settlement> settlements) {
+        this.people = people;
+        this.expenses = expenses;
+        this.archivedExpenses = archivedExpenses;
+        this.settlements = settlements;
+    }
+
+    public List<Person> getPeople() {
+        if (people == null) people = new ArrayList<>();
+        return people;
+    }
+
+    public List<Person> getFormerPeople() {
+        if (formerPeople == null) formerPeople = new ArrayList<>();
+        return formerPeople;
+    }
+
+    public List<Expense> getExpenses() {
+        if (expenses == null) expenses = new ArrayList<>();
+        return expenses;
+    }
+
+    public List<Expense> getArchivedExpenses() {
+        if (archivedExpenses == null) archivedExpenses = new ArrayList<>();
+        return archivedExpenses;
+    }
+
+    public List<Settlement> getSettlements() {
+        if (settlements == null) settlements = new ArrayList<>();
+        return settlements;
+    }
+
+    public List<String> getArchiveSegments() {
+        if (archiveSegments == null) archiveSegments = new ArrayList<>();
+        return archiveSegments;
+    }
+
+    public IdCounters getCounters() {
+        if (counters == null) counters = new IdCounters();
+        return counters;
+    }
+
+    public long getLastSequence() { return lastSequence; }
+    public void setLastSequence(long lastSequence) { this.lastSequence = lastSequence; }
+
+    public boolean isEmpty() {
+        return getPeople().isEmpty() && getExpenses().isEmpty()
+                && getArchivedExpenses().isEmpty() && getSettlements().isEmpty()
+                && getArchiveSegments().isEmpty();
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.ExpenseAdapter;
+import com.example.expensemanager.model.PersonAdapter;
+import com.example.expensemanager.model.SettlementAdapter;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Streams a snapshot one element at a time, so reading or writing a large history never
+ * holds the whole file as a String or a parse tree.
+ */
+class StoreSnapshotAdapter extends TypeAdapter<StoreSnapshot> {
+    private final PersonAdapter personAdapter = new PersonAdapter();
+    private final ExpenseAdapter expenseAdapter = new ExpenseAdapter();
+    private final SettlementAdapter settlementAdapter = new SettlementAdapter();
+
+    @Override
+    public void write(JsonWriter out, StoreSnapshot snapshot) throws IOException {
+        if (snapshot == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("people");
+        writeList(out, snapshot.getPeople(), personAdapter);
+        out.name("formerPeople");
+        writeList(out, snapshot.getFormerPeople(), personAdapter);
+        out.name("expenses");
+        writeList(out, snapshot.getExpenses(), expenseAdapter);
+        out.name("archivedExpenses");
+        writeList(out, snapshot.getArchivedExpenses(), expenseAdapter);
+        out.name("settlements");
+        writeList(out, snapshot.getSettlements(), settlementAdapter);
+        out.name("archiveSegments").beginArray();
+        for (String id : snapshot.getArchiveSegments()) {
+            out.value(id);
+        }
+        out.endArray();
+        out.name("counters");
+        writeCounters(out, snapshot.getCounters());
+        out.name("lastSequence").value(snapshot.getLastSequence());
+        out.endObject();
+    }
+
+    @Override
+    public StoreSnapshot read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        StoreSnapshot snapshot = new StoreSnapshot();
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "people":
+                    readList(in, snapshot.getPeople(), personAdapter);
+                    break;
+                case "formerPeople":
+                    readList(in, snapshot.getFormerPeople(), personAdapter);
+                    break;
+                case "expenses":
+                    readList(in, snapshot.getExpenses(), expenseAdapter);
+                    break;
+                case "archivedExpenses":
+                    readList(in, snapshot.getArchivedExpenses(), expenseAdapter);
+                    break;
+                case "settlements":
+                    readList(in, snapshot.getSettlements(), settlementAdapter);
+                    break;
+                case "archiveSegments":
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        snapshot.getArchiveSegments().add(in.nextString());
+                    }
+                    in.endArray();
+                    break;
+                case "counters":
+                    snapshot.getCounters().raiseTo(readCounters(in));
+                    break;
+                case "lastSequence":
+                    snapshot.setLastSequence(in.nextLong());
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return snapshot;
+    }
+
+    static void writeCounters(JsonWriter out, IdCounters counters) throws IOException {
+        out.beginObject();
+        out.name("person").value(counters.getPerson());
+        out.name("expense").value(counters.getExpense());
+        out.name("settlement").value(counters.getSettlement());
+        out.endObject();
+    }
+
+    static IdCounters readCounters(JsonReader in) throws IOException {
+        int person = 0;
+        int expense = 0;
+        int settlement = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "person":
+                    person = in.nextInt();
+                    break;
+                case "expense":
+                    expense = in.nextInt();
+                    break;
+                case "settlement":
+                    settlement = in.nextInt();
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return new IdCounters(person, expense, settlement);
+    }
+
+    private static <T> void writeList(JsonWriter out, List<T> items, TypeAdapter<T> adapter)
+            throws IOException {
+        out.beginArray();
+        for (T item : items) {
+            adapter.write(out, item);
+        }
+        out.endArray();
+    }
+
+    private static <T> void readList(JsonReader in, List<T> items, TypeAdapter<T> adapter)
+            throws IOException {
+        in.beginArray();
+        while (in.hasNext()) {
+            T item = adapter.read(in);
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        in.endArray();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.expensemanager.utils;
+
+/**
+ * Timing spans for debug builds. A span is a name, a duration and an optional item
+ * count, handed to the current Sink. There is none until the app installs one, which
+ * only debug builds do, so elsewhere ending a span is a single null check and span
+ * arguments are never formatted.
+ */
+public final class Tracer {
+
+    // Span names
+    public static final String BALANCE_COMPUTE = "balance.compute";
+    public static final String SETTLEMENT_SOLVE = "settlement.solve";
+    public static final String STORE_LOAD = "store.load";
+    public static final String STORE_PERSIST = "store.persist";
+
+    // Receives finished spans, on whichever thread ended them
+    public interface Sink {
+        void onSpan(String name, long durationNanos, int items);
+    }
+
+    private static volatile Sink sink;
+
+    private Tracer() {
+    }
+
+    // Null turns tracing off
+    public static void setSink(Sink newSink) {
+        sink = newSink;
+    }
+
+    public static boolean isEnabled() {
+        return sink != null;
+    }
+
+    // Start of a span; pass the result to end()
+    public static long begin() {
+        return System.nanoTime();
+    }
+
+    public static void end(String name, long startNanos) {
+        end(name, startNanos, -1);
+    }
+
+    public static void end(String name, long startNanos, int items) {
+        Sink current = sink;
+        if (current != null) {
+            current.onSpan(name, System.nanoTime() - startNanos, items);
+        }
+    }
+}
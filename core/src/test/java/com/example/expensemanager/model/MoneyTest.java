@@ -0,0 +1,52 @@
+package com.example.expensemanager.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class MoneyTest {
+
+    @Test
+    public void splitHandsRemainderToFirstParts() {
+        long[] shares = new long[3];
+        Money.split(1000, 3, shares);
+        assertArrayEquals(new long[]{334, 333, 333}, shares);
+    }
+
+    @Test
+    public void splitOfNegativeTotalStillAddsUp() {
+        long[] shares = new long[4];
+        Money.split(-1001, 4, shares);
+        assertArrayEquals(new long[]{-250, -250, -250, -251}, shares);
+        assertEquals(-1001, shares[0] + shares[1] + shares[2] + shares[3]);
+    }
+
+    @Test
+    public void shareMatchesSplit() {
+        for (long total : new long[]{0, 1, 7, 99, 1000, -5, -1001}) {
+            for (int parts = 1; parts <= 7; parts++) {
+                long[] shares = new long[parts];
+                Money.split(total, parts, shares);
+                long sum = 0;
+                for (int i = 0; i < parts; i++) {
+                    assertEquals(shares[i], Money.share(total, parts, i));
+                    sum += shares[i];
+                }
+                assertEquals(total, sum);
+            }
+        }
+    }
+
+    @Test
+    public void parseRoundsHalfUpToCents() {
+        assertEquals(1250, Money.parse("12.5"));
+        assertEquals(1235, Money.parse("12.345"));
+        assertEquals(1234, Money.parse("12.344"));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void addDetectsOverflow() {
+        Money.add(Long.MAX_VALUE, 1);
+    }
+}
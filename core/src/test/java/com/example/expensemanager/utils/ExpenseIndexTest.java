@@ -0,0 +1,129 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Expense;
+import com.example.expensemanager.model.Person;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ExpenseIndexTest {
+
+    private final Person alice = new Person("p1", "Alice", 0, "#FF0000");
+    private final Person bob = new Person("p2", "Bob", 0, "#00FF00");
+
+    private ExpenseIndex index;
+    private final List<Expense> expenses = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        index = new ExpenseIndex();
+        // Pairs of expenses share a date, so ties are ordered by id
+        for (int i = 0; i < 20; i++) {
+            Person paidBy = i % 2 == 0 ? alice : bob;
+            String category = i % 3 == 0 ? "Food" : "Travel";
+            Expense expense = new Expense(String.format("e%02d", i), paidBy, (i + 1) * 100L,
+                    "Item " + i, new Date(1_000_000L * (i / 2)), category);
+            expenses.add(expense);
+            index.add(expense);
+        }
+    }
+
+    @Test
+    public void pagesWalkNewestFirstWithoutGapsOrRepeats() {
+        List<Expense> seen = readAll(new ExpenseQuery(), 3);
+        assertEquals(20, seen.size());
+        for (int i = 1; i < seen.size(); i++) {
+            assertTrue(ExpenseCursor.of(seen.get(i - 1)).compareTo(ExpenseCursor.of(seen.get(i))) < 0);
+        }
+        // e18 and e19 share the newest date; the lower id comes first
+        assertEquals(expenses.get(18), seen.get(0));
+        assertEquals(expenses.get(19), seen.get(1));
+    }
+
+    @Test
+    public void firstPageCountsEveryMatch() {
+        ExpensePage page = index.page(new ExpenseQuery(), null, 5);
+        assertEquals(5, page.getExpenses().size());
+        assertTrue(page.hasMore());
+        assertEquals(20, page.getMatchCount());
+        assertEquals(21_000, page.getMatchTotalCents());
+
+        ExpenseQuery food = new ExpenseQuery();
+        food.addCategory("Food");
+        food.setAmountRange(0, 1000);
+        page = index.page(food, null, 2);
+        // e00, e03, e06 and e09 are food at up to $10
+        assertEquals(4, page.getMatchCount());
+        assertEquals(100 + 400 + 700 + 1000, page.getMatchTotalCents());
+    }
+
+    @Test
+    public void cursorSurvivesChangesBeforeIt() {
+        ExpenseQuery query = new ExpenseQuery();
+        query.addPerson(alice.getId());
+        ExpensePage first = index.page(query, null, 4);
+        assertEquals(4, first.getExpenses().size());
+
+        // Removing what was already shown, and adding a newer expense, must not shift the next page
+        index.remove(first.getExpenses().get(0));
+        index.add(new Expense("e99", alice, 100, "Newest", new Date(100_000_000L), "Food"));
+        ExpensePage second = index.page(query, first.getNext(), 4);
+        assertEquals(expenses.get(10), second.getExpenses().get(0));
+        assertEquals(expenses.get(4), second.getExpenses().get(3));
+
+        ExpensePage last = index.page(query, second.getNext(), 4);
+        assertEquals(2, last.getExpenses().size());
+        assertFalse(last.hasMore());
+        assertNull(last.getNext());
+    }
+
+    @Test
+    public void filtersOnPayersCategoriesDatesAndText() {
+        ExpenseQuery query = new ExpenseQuery();
+        query.addPerson(bob.getId());
+        query.addCategory("Food");
+        query.setDateRange(2_000_000L, 8_000_000L);
+        List<Expense> seen = readAll(query, 1);
+        // Bob paid the odd ones; food is every third; dates 2..8 hold e04 to e17
+        assertEquals(2, seen.size());
+        assertEquals(expenses.get(15), seen.get(0));
+        assertEquals(expenses.get(9), seen.get(1));
+
+        query = new ExpenseQuery();
+        query.setText("item 1");
+        assertEquals(11, readAll(query, 4).size());
+    }
+
+    @Test
+    public void removePersonDropsTheirExpenses() {
+        List<Expense> removed = index.removePerson(alice.getId());
+        assertEquals(10, removed.size());
+        assertEquals(10, index.size());
+        assertEquals(0, index.count(alice.getId()));
+        ExpensePage page = index.page(new ExpenseQuery(), null, 50);
+        assertEquals(10, page.getMatchCount());
+        for (Expense expense : page.getExpenses()) {
+            assertEquals(bob, expense.getPaidBy());
+        }
+    }
+
+    private List<Expense> readAll(ExpenseQuery query, int pageSize) {
+        List<Expense> seen = new ArrayList<>();
+        ExpenseCursor cursor = null;
+        do {
+            ExpensePage page = index.page(query, cursor, pageSize);
+            seen.addAll(page.getExpenses());
+            cursor = page.getNext();
+        } while (cursor != null);
+        return seen;
+    }
+}
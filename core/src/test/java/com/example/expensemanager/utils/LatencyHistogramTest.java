@@ -0,0 +1,65 @@
+package com.example.expensemanager.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void smallValuesHaveExactBuckets() {
+        for (int value = 0; value < 8; value++) {
+            assertEquals(value, LatencyHistogram.bucketOf(value));
+            assertEquals(value, LatencyHistogram.lowerBound(value));
+        }
+        assertEquals(8, LatencyHistogram.bucketOf(8));
+        assertEquals(15, LatencyHistogram.bucketOf(15));
+        assertEquals(16, LatencyHistogram.bucketOf(16));
+        assertEquals(16, LatencyHistogram.bucketOf(17));
+    }
+
+    @Test
+    public void everyValueFallsInsideItsBucket() {
+        long[] values = {8, 9, 100, 1000, 1023, 1024, 123_456_789L, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            long lower = LatencyHistogram.lowerBound(bucket);
+            assertTrue(value + " below its bucket", lower <= value);
+            // Within 12.5% of the value
+            assertTrue(value + " bucket too wide", value - lower <= value / 8);
+            if (value < Long.MAX_VALUE) {
+                assertTrue(LatencyHistogram.bucketOf(value + 1) >= bucket);
+            }
+        }
+    }
+
+    @Test
+    public void bucketBoundsAreIncreasing() {
+        int last = LatencyHistogram.bucketOf(Long.MAX_VALUE);
+        for (int bucket = 1; bucket <= last; bucket++) {
+            assertTrue(LatencyHistogram.lowerBound(bucket) > LatencyHistogram.lowerBound(bucket - 1));
+            assertEquals(bucket, LatencyHistogram.bucketOf(LatencyHistogram.lowerBound(bucket)));
+        }
+    }
+
+    @Test
+    public void percentilesReportBucketUpperEnd() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-5);
+        assertEquals(101, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        assertEquals(100, histogram.getMax());
+        // The median, 50, falls in the bucket [48, 51]
+        assertEquals(51, histogram.getPercentile(0.5));
+        assertEquals(100, histogram.getPercentile(1.0));
+        assertEquals(0, histogram.getPercentile(0.0));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(0.99));
+    }
+}
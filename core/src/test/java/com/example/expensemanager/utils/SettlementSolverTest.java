@@ -0,0 +1,124 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Person;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SettlementSolverTest {
+
+    @Test
+    public void findsFewerTransfersThanGreedy() {
+        // {+4, -2, -2} and {+3, -3} settle apart in three transfers; greedy needs four
+        Balances balances = balances(400, 300, -200, -200, -300);
+        List<Calculator.Settlement> greedy =
+                Calculator.getSettlementSuggestions(balances, Calculator.Strategy.GREEDY);
+        List<Calculator.Settlement> fewest =
+                Calculator.getSettlementSuggestions(balances, Calculator.Strategy.MINIMUM_TRANSFERS);
+
+        assertSettles(balances, greedy);
+        assertSettles(balances, fewest);
+        assertEquals(4, greedy.size());
+        assertEquals(3, fewest.size());
+    }
+
+    @Test
+    public void matchesExhaustiveMinimumOnSmallGroups() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            Balances balances = randomBalances(random, 2 + random.nextInt(8), 5);
+            List<Calculator.Settlement> fewest = SettlementSolver.solve(balances);
+            assertSettles(balances, fewest);
+            assertEquals(minimumTransfers(balances), fewest.size());
+        }
+    }
+
+    @Test
+    public void largeGroupsNeverUseMoreTransfersThanGreedy() {
+        Random random = new Random(11);
+        for (int round = 0; round < 20; round++) {
+            Balances balances = randomBalances(random, SettlementSolver.EXACT_LIMIT + 1 + random.nextInt(40), 50);
+            List<Calculator.Settlement> greedy =
+                    Calculator.getSettlementSuggestions(balances, Calculator.Strategy.GREEDY);
+            List<Calculator.Settlement> fewest = SettlementSolver.solve(balances);
+            assertSettles(balances, fewest);
+            assertTrue(fewest.size() <= greedy.size());
+        }
+    }
+
+    @Test
+    public void sameBalancesGiveSameTransfers() {
+        Balances balances = randomBalances(new Random(3), 12, 20);
+        assertEquals(SettlementSolver.solve(balances).toString(), SettlementSolver.solve(balances).toString());
+    }
+
+    private static Balances balances(long... cents) {
+        List<Person> people = new ArrayList<>();
+        for (int i = 0; i < cents.length; i++) {
+            people.add(new Person("p" + i, "P" + i, 0, "#000000"));
+        }
+        return Balances.of(people, cents);
+    }
+
+    // Small whole amounts, so many zero-sum groups exist; the last person takes up the rest
+    private static Balances randomBalances(Random random, int people, int range) {
+        long[] cents = new long[people];
+        long sum = 0;
+        for (int i = 0; i < people - 1; i++) {
+            cents[i] = (random.nextInt(2 * range + 1) - range) * 100L;
+            sum += cents[i];
+        }
+        cents[people - 1] = -sum;
+        return balances(cents);
+    }
+
+    // Applies every transfer and checks that everyone ends at zero
+    private static void assertSettles(Balances balances, List<Calculator.Settlement> settlements) {
+        Map<String, Long> remaining = new HashMap<>();
+        for (int i = 0; i < balances.size(); i++) {
+            remaining.put(balances.getPerson(i).getId(), balances.getCents(i));
+        }
+        for (Calculator.Settlement settlement : settlements) {
+            assertTrue(settlement.getAmountCents() > 0);
+            remaining.merge(settlement.getFrom().getId(), settlement.getAmountCents(), Long::sum);
+            remaining.merge(settlement.getTo().getId(), -settlement.getAmountCents(), Long::sum);
+        }
+        for (long cents : remaining.values()) {
+            assertEquals(0, cents);
+        }
+    }
+
+    // Non-zero people minus the most zero-sum groups they split into, by trying every subset
+    private static int minimumTransfers(Balances balances) {
+        List<Long> open = new ArrayList<>();
+        for (int i = 0; i < balances.size(); i++) {
+            if (balances.getCents(i) != 0) {
+                open.add(balances.getCents(i));
+            }
+        }
+        int n = open.size();
+        long[] sums = new long[1 << n];
+        int[] groups = new int[1 << n];
+        for (int mask = 1; mask < sums.length; mask++) {
+            int low = Integer.numberOfTrailingZeros(mask);
+            sums[mask] = sums[mask & (mask - 1)] + open.get(low);
+            for (int i = 0; i < n; i++) {
+                if ((mask & (1 << i)) != 0) {
+                    groups[mask] = Math.max(groups[mask], groups[mask & ~(1 << i)]);
+                }
+            }
+            if (sums[mask] == 0) {
+                groups[mask]++;
+            }
+        }
+        return n - groups[sums.length - 1];
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.expensemanager.utils;
+
+import com.example.expensemanager.model.Expense;
+import com.example.expensemanager.model.Person;
+import com.example.expensemanager.model.Settlement;
+import com.example.expensemanager.model.SettlementItem;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SnapshotCodecTest {
+
+    private final Person alice = new Person("p1", "Alice", 0, "#FF0000");
+    private final Person bob = new Person("p2", "Bob", 0, "#00FF00");
+    // Removed, but still named in history
+    private final Person carol = new Person("p3", "Carol", 0, "#0000FF");
+    // Not in either person list, so only its id is written
+    private final Person dave = new Person("p4", "Dave", 0, "#FFFFFF");
+
+    private StoreSnapshot sample() {
+        StoreSnapshot snapshot = new StoreSnapshot();
+        snapshot.getPeople().addAll(Arrays.asList(alice, bob));
+        snapshot.getFormerPeople().add(carol);
+
+        snapshot.getExpenses().add(new Expense("e1", alice, 1250, "Lunch", new Date(1_700_000_000_000L), "Food"));
+        Expense undated = new Expense("e2", bob, -300, null, null, null);
+        undated.setCurrency("EUR");
+        snapshot.getExpenses().add(undated);
+        snapshot.getExpenses().add(new Expense(null, null, 0, "No id", new Date(1_600_000_000_000L), "Food"));
+        snapshot.getArchivedExpenses().add(new Expense("e3", carol, 999, "Taxi", new Date(1_500_000_000_000L), "Travel"));
+
+        SettlementItem item = new SettlementItem(dave, alice, 500);
+        item.setSettled(true);
+        snapshot.getSettlements().add(new Settlement("s1", new Date(1_650_000_000_000L),
+                Arrays.asList(item, new SettlementItem(bob, carol, 120)), "March"));
+        snapshot.getSettlements().add(new Settlement("s2", null, null, null));
+        snapshot.getArchiveSegments().add("s1");
+
+        snapshot.getCounters().raiseTo(new IdCounters(4, 3, 2));
+        snapshot.setLastSequence(42);
+        return snapshot;
+    }
+
+    @Test
+    public void roundTripKeepsEveryField() throws IOException {
+        for (boolean deflate : new boolean[]{false, true}) {
+            SnapshotCodec codec = new SnapshotCodec(deflate);
+            StoreSnapshot decoded = codec.decode(codec.encode(sample()));
+
+            assertEquals(2, decoded.getPeople().size());
+            assertPerson(alice, decoded.getPeople().get(0));
+            assertPerson(bob, decoded.getPeople().get(1));
+            assertEquals(1, decoded.getFormerPeople().size());
+            assertPerson(carol, decoded.getFormerPeople().get(0));
+
+            assertEquals(3, decoded.getExpenses().size());
+            Expense lunch = decoded.getExpenses().get(0);
+            assertEquals("e1", lunch.getId());
+            assertEquals("p1", lunch.getPaidBy().getId());
+            assertEquals(1250, lunch.getAmountCents());
+            assertEquals("USD", lunch.getCurrency());
+            assertEquals("Lunch", lunch.getDescription());
+            assertEquals(1_700_000_000_000L, lunch.getDate().getTime());
+            assertEquals("Food", lunch.getCategory());
+
+            Expense undated = decoded.getExpenses().get(1);
+            assertEquals(-300, undated.getAmountCents());
+            assertEquals("EUR", undated.getCurrency());
+            assertNull(undated.getDescription());
+            assertNull(undated.getDate());
+            assertNull(undated.getCategory());
+
+            // A missing id gets a fresh one; the date after a null date is still exact
+            Expense noId = decoded.getExpenses().get(2);
+            assertNotNull(noId.getId());
+            assertNull(noId.getPaidBy());
+            assertEquals(1_600_000_000_000L, noId.getDate().getTime());
+
+            assertEquals(1, decoded.getArchivedExpenses().size());
+            assertEquals("p3", decoded.getArchivedExpenses().get(0).getPaidBy().getId());
+
+            assertEquals(2, decoded.getSettlements().size());
+            Settlement march = decoded.getSettlements().get(0);
+            assertEquals("s1", march.getId());
+            assertEquals(1_650_000_000_000L, march.getDate().getTime());
+            assertEquals("March", march.getDescription());
+            assertEquals(620, march.getTotalAmountCents());
+            SettlementItem first = march.getSettlements().get(0);
+            assertEquals("p4", first.getFrom().getId());
+            assertNull(first.getFrom().getName());
+            assertEquals("p1", first.getTo().getId());
+            assertEquals(500, first.getAmountCents());
+            assertTrue(first.isSettled());
+            assertFalse(march.getSettlements().get(1).isSettled());
+
+            Settlement empty = decoded.getSettlements().get(1);
+            assertEquals("s2", empty.getId());
+            assertNull(empty.getDate());
+            assertNull(empty.getSettlements());
+
+            assertEquals(Arrays.asList("s1"), decoded.getArchiveSegments());
+            assertEquals(4, decoded.getCounters().getPerson());
+            assertEquals(3, decoded.getCounters().getExpense());
+            assertEquals(2, decoded.getCounters().getSettlement());
+            assertEquals(42, decoded.getLastSequence());
+        }
+    }
+
+    @Test
+    public void damagedBodyIsRejected() {
+        for (boolean deflate : new boolean[]{false, true}) {
+            SnapshotCodec codec = new SnapshotCodec(deflate);
+            byte[] bytes = codec.encode(sample());
+            bytes[bytes.length - 1] ^= 0x5A;
+            try {
+                codec.decode(bytes);
+                fail("Damaged snapshot was accepted");
+            } catch (IOException expected) {
+                // CRC mismatch, or the deflate stream no longer inflates
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedFileIsRejected() throws IOException {
+        SnapshotCodec codec = new SnapshotCodec(false);
+        byte[] bytes = codec.encode(sample());
+        codec.decode(Arrays.copyOf(bytes, bytes.length - 3));
+    }
+
+    @Test(expected = IOException.class)
+    public void newerFormatIsRejected() throws IOException {
+        SnapshotCodec codec = new SnapshotCodec(false);
+        byte[] bytes = codec.encode(sample());
+        bytes[4] = (byte) (SnapshotCodec.FORMAT_VERSION + 1);
+        codec.decode(bytes);
+    }
+
+    private static void assertPerson(Person expected, Person actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getColorHex(), actual.getColorHex());
+    }
+}